@@ -1,7 +1,11 @@
 package org.cassandraunit.spring;
 
+import com.datastax.driver.core.ProtocolOptions;
+import com.datastax.driver.core.ProtocolVersion;
 import org.cassandraunit.CQLDataLoader;
 import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.cassandraunit.utils.CqlOperations;
+import org.cassandraunit.utils.DriverSettings;
 import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,21 +17,31 @@ import org.springframework.util.ClassUtils;
 import org.springframework.util.ResourceUtils;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
 /**
  * The goal of this abstract listener is to provide utility methods for its subclasses to be able to :
  * - start an embedded Cassandra
- * - load dataset into Cassandra keyspace
+ * - load dataset into Cassandra keyspace, or hand out a copy loaded in advance by a {@link KeyspacePool}
  *
  * @author Gaëtan Le Brun
  */
 public abstract class AbstractCassandraUnitTestExecutionListener extends AbstractTestExecutionListener implements Ordered {
     private static final Logger LOGGER = LoggerFactory.getLogger(CassandraUnitTestExecutionListener.class);
     private static boolean initialized = false;
+    /** datasets loaded in the snapshotted keyspaces */
+    private static final Map<String, List<String>> snapshotDataSets = new HashMap<>();
+
+    /** test context attribute holding the keyspace the datasets of the test class are loaded in */
+    public static final String KEYSPACE_ATTRIBUTE = AbstractCassandraUnitTestExecutionListener.class.getName() + ".keyspace";
+    /** test context attribute holding the copy of a keyspace pool acquired by the test class */
+    private static final String POOLED_KEYSPACE_ATTRIBUTE = AbstractCassandraUnitTestExecutionListener.class.getName() + ".pooledKeyspace";
 
     protected void startServer(TestContext testContext) throws Exception {
         EmbeddedCassandra embeddedCassandra = Objects.requireNonNull(AnnotationUtils.findAnnotation(testContext.getTestClass(), EmbeddedCassandra.class),
@@ -36,14 +50,25 @@ public abstract class AbstractCassandraUnitTestExecutionListener extends Abstrac
             String yamlFile = Optional.ofNullable(embeddedCassandra.configuration()).get();
             String tmpDir = embeddedCassandra.tmpDir();
             long timeout = embeddedCassandra.timeout();
-            EmbeddedCassandraServerHelper.startEmbeddedCassandra(yamlFile, tmpDir, timeout);
+            EmbeddedCassandraServerHelper.startEmbeddedCassandra(yamlFile, tmpDir, timeout, embeddedCassandra.elasticsearch());
             initialized = true;
         }
+        EmbeddedCassandraServerHelper.useDriverSettings(driverSettings(embeddedCassandra));
 
         CassandraDataSet cassandraDataSet = AnnotationUtils.findAnnotation(testContext.getTestClass(), CassandraDataSet.class);
         if (cassandraDataSet != null) {
             String keyspace = cassandraDataSet.keyspace();
             List<String> dataset = dataSetLocations(testContext, cassandraDataSet);
+            if (cassandraDataSet.poolSize() > 0 && !dataset.isEmpty()) {
+                // listeners starting the server before each test method give back the copy of the previous one
+                releasePooledKeyspace(testContext);
+                String copy = KeyspacePool.forDataSets(keyspace, dataset, cassandraDataSet.poolSize()).acquire();
+                CqlOperations.use(EmbeddedCassandraServerHelper.getSession()).accept(copy);
+                testContext.setAttribute(POOLED_KEYSPACE_ATTRIBUTE, copy);
+                testContext.setAttribute(KEYSPACE_ATTRIBUTE, copy);
+                return;
+            }
+            testContext.setAttribute(KEYSPACE_ATTRIBUTE, keyspace);
             ListIterator<String> datasetIterator = dataset.listIterator();
 
             CQLDataLoader cqlDataLoader = new CQLDataLoader(EmbeddedCassandraServerHelper.getSession());
@@ -52,7 +77,66 @@ public abstract class AbstractCassandraUnitTestExecutionListener extends Abstrac
                 boolean dropAndCreateKeyspace = datasetIterator.previousIndex() == 0;
                 cqlDataLoader.load(new ClassPathCQLDataSet(next, dropAndCreateKeyspace, dropAndCreateKeyspace, keyspace));
             }
+            if (isDataSetSnapshotted() && !dataset.isEmpty()) {
+                EmbeddedCassandraServerHelper.snapshotKeyspace(keyspace.toLowerCase());
+                snapshotDataSets.put(keyspace.toLowerCase(), dataset);
+            }
+        }
+    }
+
+    private static DriverSettings driverSettings(EmbeddedCassandra embeddedCassandra) {
+        DriverSettings.Builder builder = DriverSettings.builder();
+        if (embeddedCassandra.coreConnectionsPerHost() > 0 || embeddedCassandra.maxConnectionsPerHost() > 0) {
+            int core = embeddedCassandra.coreConnectionsPerHost() > 0 ? embeddedCassandra.coreConnectionsPerHost() : 1;
+            builder.withConnectionsPerHost(core, Math.max(core, embeddedCassandra.maxConnectionsPerHost()));
+        }
+        if (embeddedCassandra.maxRequestsPerConnection() > 0) {
+            builder.withMaxRequestsPerConnection(embeddedCassandra.maxRequestsPerConnection());
+        }
+        if (!embeddedCassandra.compression().isEmpty()) {
+            builder.withCompression(ProtocolOptions.Compression.valueOf(embeddedCassandra.compression().toUpperCase(Locale.ROOT)));
+        }
+        if (!embeddedCassandra.protocolVersion().isEmpty()) {
+            builder.withProtocolVersion(ProtocolVersion.valueOf(embeddedCassandra.protocolVersion().toUpperCase(Locale.ROOT)));
+        }
+        if (embeddedCassandra.connectTimeoutMillis() > 0) {
+            builder.withConnectTimeoutMillis(embeddedCassandra.connectTimeoutMillis());
+        }
+        if (embeddedCassandra.readTimeoutMillis() > 0) {
+            builder.withReadTimeoutMillis(embeddedCassandra.readTimeoutMillis());
+        }
+        if (embeddedCassandra.eventLoopThreads() >= 0) {
+            builder.withEventLoopThreads(embeddedCassandra.eventLoopThreads());
         }
+        return builder.build();
+    }
+
+    /**
+     * Brings the keyspace of the test class back to its content once its datasets were loaded, from the snapshot taken
+     * by {@link #startServer(TestContext)}.
+     *
+     * @return false if there is no snapshot of these datasets, or if the tables of the keyspace have changed since
+     */
+    protected boolean restoreServer(TestContext testContext) {
+        CassandraDataSet cassandraDataSet = AnnotationUtils.findAnnotation(testContext.getTestClass(), CassandraDataSet.class);
+        if (cassandraDataSet == null || cassandraDataSet.poolSize() > 0) {
+            return false;
+        }
+        String keyspace = cassandraDataSet.keyspace().toLowerCase();
+        if (!dataSetLocations(testContext, cassandraDataSet).equals(snapshotDataSets.get(keyspace))
+                || !EmbeddedCassandraServerHelper.restoreKeyspace(keyspace)) {
+            return false;
+        }
+        CqlOperations.use(EmbeddedCassandraServerHelper.getSession()).accept(keyspace);
+        return true;
+    }
+
+    /**
+     * Whether the keyspace is snapshotted once the datasets are loaded, for listeners which reset it with
+     * {@link #restoreServer(TestContext)}.
+     */
+    protected boolean isDataSetSnapshotted() {
+        return false;
     }
 
     private List<String> dataSetLocations(TestContext testContext, CassandraDataSet cassandraDataSet) {
@@ -74,7 +158,24 @@ public abstract class AbstractCassandraUnitTestExecutionListener extends Abstrac
     }
 
     protected void cleanServer() {
-        EmbeddedCassandraServerHelper.cleanEmbeddedCassandra();
+        EmbeddedCassandraServerHelper.cleanEmbeddedCassandra(KeyspacePool::isPooled);
+    }
+
+    /**
+     * Gives back the pooled keyspace acquired by the test class, if any, then drops the other keyspaces.
+     */
+    protected void cleanServer(TestContext testContext) {
+        releasePooledKeyspace(testContext);
+        cleanServer();
+    }
+
+    private void releasePooledKeyspace(TestContext testContext) {
+        String copy = (String) testContext.removeAttribute(POOLED_KEYSPACE_ATTRIBUTE);
+        if (copy != null) {
+            CassandraDataSet cassandraDataSet = AnnotationUtils.findAnnotation(testContext.getTestClass(), CassandraDataSet.class);
+            KeyspacePool.forDataSets(cassandraDataSet.keyspace(), dataSetLocations(testContext, cassandraDataSet),
+                    cassandraDataSet.poolSize()).release(copy);
+        }
     }
 
     protected String alternativePath(Class<?> clazz, boolean includedPackageName, String extension) {
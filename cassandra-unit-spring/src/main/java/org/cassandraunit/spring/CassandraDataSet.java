@@ -49,4 +49,6 @@ public @interface CassandraDataSet {
   // Only needed if CQL
   String keyspace() default "cassandra_unit_keyspace";
   DataSetFileExtensionEnum type() default DataSetFileExtensionEnum.cql;
+  // Number of copies of the datasets loaded in advance, each in a keyspace of its own, 0 to load them on demand
+  int poolSize() default 0;
 }
@@ -24,14 +24,23 @@ public class CassandraUnitDependencyInjectionTestExecutionListener extends Abstr
   @Override
   public void afterTestMethod(TestContext testContext) throws Exception {
     if (Boolean.TRUE.equals(testContext.getAttribute(DependencyInjectionTestExecutionListener.REINJECT_DEPENDENCIES_ATTRIBUTE))) {
-      LOGGER.debug("Cleaning and reloading server for test context [{}]", testContext);
-      cleanServer();
-      startServer(testContext);
+      if (restoreServer(testContext)) {
+        LOGGER.debug("Restored dataset snapshot for test context [{}]", testContext);
+      } else {
+        LOGGER.debug("Cleaning and reloading server for test context [{}]", testContext);
+        cleanServer(testContext);
+        startServer(testContext);
+      }
     }
   }
 
+  @Override
+  protected boolean isDataSetSnapshotted() {
+    return true;
+  }
+
   @Override
   public void afterTestClass(TestContext testContext) throws Exception {
-    cleanServer();
+    cleanServer(testContext);
   }
 }
@@ -18,6 +18,6 @@ public class CassandraUnitTestExecutionListener extends AbstractCassandraUnitTes
 
     @Override
     public void afterTestMethod(TestContext testContext) throws Exception {
-        cleanServer();
+        cleanServer(testContext);
     }
 }
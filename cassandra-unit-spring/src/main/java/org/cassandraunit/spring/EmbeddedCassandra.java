@@ -23,4 +23,18 @@ public @interface EmbeddedCassandra {
   String configuration() default EmbeddedCassandraServerHelper.DEFAULT_CASSANDRA_YML_FILE;
   String tmpDir() default EmbeddedCassandraServerHelper.DEFAULT_TMP_DIR;
   long timeout() default EmbeddedCassandraServerHelper.DEFAULT_STARTUP_TIMEOUT;
+  // false to start only Cassandra, without Elasticsearch
+  boolean elasticsearch() default true;
+  // driver settings of the shared cluster, the unset ones (-1 or empty) are read from the
+  // cassandra-unit.driver.* system properties, see DriverSettings
+  int coreConnectionsPerHost() default -1;
+  int maxConnectionsPerHost() default -1;
+  int maxRequestsPerConnection() default -1;
+  // none, lz4 or snappy
+  String compression() default "";
+  // V3, V4...
+  String protocolVersion() default "";
+  int connectTimeoutMillis() default -1;
+  int readTimeoutMillis() default -1;
+  int eventLoopThreads() default -1;
 }
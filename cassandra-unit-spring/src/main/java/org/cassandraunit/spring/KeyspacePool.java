@@ -0,0 +1,179 @@
+package org.cassandraunit.spring;
+
+import com.datastax.driver.core.Session;
+import org.cassandraunit.CQLDataLoader;
+import org.cassandraunit.dataset.CQLDataSet;
+import org.cassandraunit.dataset.cql.CQLModification;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.cassandraunit.exception.CassandraUnitException;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.cassandraunit.utils.KeyspaceIsolation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Copies of the datasets of a keyspace, each loaded in a keyspace of its own in the background, so that test classes
+ * sharing the datasets rarely wait for them to load. A copy is handed out by {@link #acquire()}; once released, it is
+ * dropped and loaded again in the background. A new copy is loaded on demand when every copy is in use.
+ *
+ * @see CassandraDataSet#poolSize()
+ */
+public class KeyspacePool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyspacePool.class);
+
+    private static final Map<List<String>, KeyspacePool> pools = new HashMap<>();
+    /** keyspaces of the copies of every pool */
+    private static final Set<String> pooledKeyspaces = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger sequence = new AtomicInteger();
+    /** one loader, schema changes are applied one at a time by the node anyway */
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cassandra-unit-keyspace-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String keyspace;
+    private final List<String> dataSets;
+    private final BlockingQueue<Future<String>> copies = new LinkedBlockingQueue<>();
+
+    private KeyspacePool(String keyspace, List<String> dataSets, int size) {
+        this.keyspace = keyspace.toLowerCase(Locale.ROOT);
+        this.dataSets = dataSets;
+        for (int i = 0; i < size; i++) {
+            copies.add(load(newKeyspace()));
+        }
+    }
+
+    /**
+     * @return the pool of the datasets, created with size copies on first use
+     */
+    public static synchronized KeyspacePool forDataSets(String keyspace, List<String> dataSets, int size) {
+        List<String> key = new ArrayList<>(dataSets);
+        key.add(0, keyspace.toLowerCase(Locale.ROOT));
+        return pools.computeIfAbsent(key, k -> new KeyspacePool(keyspace, dataSets, size));
+    }
+
+    /**
+     * @return whether the keyspace is a copy of a pool, in use or not
+     */
+    public static boolean isPooled(String keyspace) {
+        return pooledKeyspaces.contains(keyspace);
+    }
+
+    /**
+     * Hands out a copy of the datasets, waiting for it to be loaded if needed.
+     *
+     * @return the keyspace of the copy
+     */
+    public String acquire() {
+        Future<String> copy = copies.poll();
+        if (copy == null) {
+            LOGGER.debug("every copy of {} is in use, loading a new one", dataSets);
+            copy = load(newKeyspace());
+        }
+        try {
+            return copy.get();
+        } catch (ExecutionException e) {
+            throw new CassandraUnitException("Failed to load " + dataSets + " in a pooled keyspace", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CassandraUnitException("Interrupted while loading " + dataSets + " in a pooled keyspace", e);
+        }
+    }
+
+    /**
+     * Gives back a copy, which is loaded again in the background before it is handed out again.
+     */
+    public void release(String copy) {
+        copies.add(load(copy));
+    }
+
+    private String newKeyspace() {
+        String copy = KeyspaceIsolation.isolate(keyspace + "_pool" + sequence.incrementAndGet());
+        pooledKeyspaces.add(copy);
+        return copy;
+    }
+
+    private Future<String> load(String copy) {
+        return loader.submit(() -> {
+            long start = System.nanoTime();
+            try (Session session = EmbeddedCassandraServerHelper.getCluster().connect()) {
+                CQLDataLoader dataLoader = new CQLDataLoader(session);
+                for (int i = 0; i < dataSets.size(); i++) {
+                    // the first dataset drops and creates the keyspace of the copy
+                    dataLoader.load(new CopiedDataSet(new ClassPathCQLDataSet(dataSets.get(i), i == 0, i == 0, copy), keyspace));
+                }
+            }
+            EmbeddedCassandraServerHelper.untrackKeyspace(copy);
+            LOGGER.debug("loaded {} in {} in {} ms", dataSets, copy, (System.nanoTime() - start) / 1000000);
+            return copy;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "KeyspacePool{keyspace=" + keyspace + ", dataSets=" + dataSets + "}";
+    }
+
+    /**
+     * A dataset loaded in a copy, whose statements naming the keyspace of the pool, such as {@code mykeyspace.mytable},
+     * name the copy instead.
+     */
+    private static class CopiedDataSet implements CQLDataSet {
+
+        private final CQLDataSet dataSet;
+        private final String keyspace;
+
+        CopiedDataSet(CQLDataSet dataSet, String keyspace) {
+            this.dataSet = dataSet;
+            this.keyspace = keyspace;
+        }
+
+        @Override
+        public List<String> getCQLStatements() {
+            return dataSet.getCQLStatements().stream().map(this::rename).collect(Collectors.toList());
+        }
+
+        @Override
+        public Stream<String> getCQLStatementStream() {
+            return dataSet.getCQLStatementStream().map(this::rename);
+        }
+
+        private String rename(String statement) {
+            return CQLModification.renameKeyspace(statement, keyspace, getKeyspaceName());
+        }
+
+        @Override
+        public String getKeyspaceName() {
+            return dataSet.getKeyspaceName();
+        }
+
+        @Override
+        public boolean isKeyspaceCreation() {
+            return dataSet.isKeyspaceCreation();
+        }
+
+        @Override
+        public boolean isKeyspaceDeletion() {
+            return dataSet.isKeyspaceDeletion();
+        }
+    }
+}
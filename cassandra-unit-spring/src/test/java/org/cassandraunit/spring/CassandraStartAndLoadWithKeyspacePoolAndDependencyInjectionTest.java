@@ -0,0 +1,61 @@
+package org.cassandraunit.spring;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The dependency injection listener starts the server before each test method: every method gets a fresh copy, the
+ * single copy of the pool being given back before the next one is acquired.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(value = { "classpath:/default-context.xml" })
+@TestExecutionListeners({ CassandraUnitDependencyInjectionTestExecutionListener.class })
+@CassandraDataSet(keyspace = "dipooledkeyspace", poolSize = 1)
+@EmbeddedCassandra
+public class CassandraStartAndLoadWithKeyspacePoolAndDependencyInjectionTest {
+
+  private static final Set<String> usedKeyspaces = ConcurrentHashMap.newKeySet();
+
+  @Test
+  public void should_work() {
+    test();
+  }
+
+  @Test
+  public void should_work_twice() {
+    test();
+  }
+
+  @Test
+  public void should_work_more_times_than_the_pool_size() {
+    test();
+  }
+
+  private void test() {
+    Session session = EmbeddedCassandraServerHelper.getSession();
+    String keyspace = session.getLoggedKeyspace();
+    assertThat(keyspace, startsWith("dipooledkeyspace_pool"));
+    usedKeyspaces.add(keyspace);
+    assertThat(usedKeyspaces.size(), is(1));
+
+    ResultSet result = session.execute("select * from testCQLTableKS WHERE id=1690e8da-5bf8-49e8-9583-4dff8a570787");
+    String val = result.iterator().next().getString("value");
+    assertEquals("KS- Cql loaded string", val);
+    session.execute("delete from testCQLTableKS WHERE id=1690e8da-5bf8-49e8-9583-4dff8a570787");
+  }
+
+}
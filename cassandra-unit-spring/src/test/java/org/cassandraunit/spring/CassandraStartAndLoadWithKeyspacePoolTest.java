@@ -0,0 +1,51 @@
+package org.cassandraunit.spring;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(value = { "classpath:/default-context.xml" })
+@TestExecutionListeners({ CassandraUnitTestExecutionListener.class })
+@CassandraDataSet(keyspace = "pooledkeyspace", poolSize = 2)
+@EmbeddedCassandra
+public class CassandraStartAndLoadWithKeyspacePoolTest {
+
+  @Test
+  public void should_work() {
+    test();
+  }
+
+  @Test
+  public void should_work_twice() {
+    test();
+  }
+
+  private void test() {
+    Session session = EmbeddedCassandraServerHelper.getSession();
+    String keyspace = session.getLoggedKeyspace();
+    assertThat(keyspace, startsWith("pooledkeyspace_pool"));
+    assertTrue(KeyspacePool.isPooled(keyspace));
+
+    ResultSet result = session.execute("select * from testCQLTableKS WHERE id=1690e8da-5bf8-49e8-9583-4dff8a570787");
+    String val = result.iterator().next().getString("value");
+    assertEquals("KS- Cql loaded string", val);
+    // loaded in the copy, the dataset naming the keyspace of the pool
+    result = session.execute("select * from testCQLTableKS WHERE id=1690e8da-5bf8-49e8-9583-4dff8a570790");
+    assertEquals("KS- qualified", result.iterator().next().getString("value"));
+    assertNull(session.getCluster().getMetadata().getKeyspace("pooledkeyspace"));
+    session.execute("delete from testCQLTableKS WHERE id=1690e8da-5bf8-49e8-9583-4dff8a570787");
+  }
+
+}
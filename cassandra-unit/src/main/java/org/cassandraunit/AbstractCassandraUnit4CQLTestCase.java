@@ -1,6 +1,7 @@
 package org.cassandraunit;
 
 import org.cassandraunit.dataset.CQLDataSet;
+import org.cassandraunit.utils.DriverSettings;
 import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
 import org.junit.After;
 import org.junit.Before;
@@ -24,11 +25,13 @@ public abstract class AbstractCassandraUnit4CQLTestCase {
     private Cluster cluster;
 
     public AbstractCassandraUnit4CQLTestCase() {
-        cassandraUnit = new CassandraCQLUnit(getDataSet());
+        cassandraUnit = new CassandraCQLUnit(getDataSet()).withResetStrategy(getResetStrategy())
+                .withDriverSettings(getDriverSettings());
     }
 
     public AbstractCassandraUnit4CQLTestCase(String configurationFileName) {
-        cassandraUnit = new CassandraCQLUnit(getDataSet(), configurationFileName);
+        cassandraUnit = new CassandraCQLUnit(getDataSet(), configurationFileName).withResetStrategy(getResetStrategy())
+                .withDriverSettings(getDriverSettings());
     }
 
     @Before
@@ -43,11 +46,34 @@ public abstract class AbstractCassandraUnit4CQLTestCase {
 
     @After
     public void after(){
-        EmbeddedCassandraServerHelper.cleanEmbeddedCassandra();
+        if (getResetStrategy() == ResetStrategy.DROP_AND_RELOAD) {
+            EmbeddedCassandraServerHelper.cleanEmbeddedCassandra();
+        } else {
+            // the keyspace of the dataset is reset before the next test, the keyspaces the test created are dropped
+            String datasetKeyspace = cassandraUnit.keyspace();
+            EmbeddedCassandraServerHelper.cleanEmbeddedCassandra(datasetKeyspace::equals);
+        }
     }
 
     public abstract CQLDataSet getDataSet();
 
+    /**
+     * How the keyspace of the dataset is brought back to its loaded content before each test, other than the first
+     * test loading it. {@link ResetStrategy#DROP_AND_RELOAD} drops every keyspace after each test, the other strategies
+     * every keyspace but the one of the dataset.
+     */
+    protected ResetStrategy getResetStrategy() {
+        return ResetStrategy.RESTORE_SNAPSHOT;
+    }
+
+    /**
+     * The driver settings of the shared cluster, by default those of the {@code cassandra-unit.driver.*} system
+     * properties.
+     */
+    protected DriverSettings getDriverSettings() {
+        return DriverSettings.fromSystemProperties();
+    }
+
     public Session getSession() {
         return session;
     }
@@ -1,5 +1,6 @@
 package org.cassandraunit;
 
+import org.cassandraunit.utils.DriverSettings;
 import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
 import org.junit.rules.ExternalResource;
 
@@ -12,7 +13,8 @@ public abstract class BaseCassandraUnit extends ExternalResource {
 
 	protected String configurationFileName;
 	protected long startupTimeoutMillis;
-	protected int readTimeoutMillis = 12000;
+	protected DriverSettings driverSettings = DriverSettings.fromSystemProperties();
+	protected int readTimeoutMillis = driverSettings.getReadTimeoutMillis();
 
 	public BaseCassandraUnit() {
 		this(EmbeddedCassandraServerHelper.DEFAULT_STARTUP_TIMEOUT);
@@ -30,6 +32,7 @@ public abstract class BaseCassandraUnit extends ExternalResource {
 		} else {
 			EmbeddedCassandraServerHelper.startEmbeddedCassandra(startupTimeoutMillis);
 		}
+		EmbeddedCassandraServerHelper.useDriverSettings(getDriverSettings());
 
 		/* create structure and load data */
 		load();
@@ -38,10 +41,17 @@ public abstract class BaseCassandraUnit extends ExternalResource {
 	protected abstract void load();
 
 	/**
-	 * Gets a base SocketOptions with an overridden readTimeoutMillis.
+	 * Gets the driver settings of the shared cluster, with the socket options of {@link #getSocketOptions()}.
+	 */
+	protected DriverSettings getDriverSettings() {
+		return driverSettings.toBuilder().withSocketOptions(getSocketOptions()).build();
+	}
+
+	/**
+	 * Gets the SocketOptions of the driver settings with an overridden readTimeoutMillis.
 	 */
 	protected SocketOptions getSocketOptions() {
-		SocketOptions socketOptions = new SocketOptions();
+		SocketOptions socketOptions = driverSettings.toSocketOptions();
 		socketOptions.setReadTimeoutMillis(this.readTimeoutMillis);
 		return socketOptions;
 	}
@@ -1,10 +1,32 @@
 package org.cassandraunit;
 
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
+import com.google.common.collect.Iterators;
 import org.cassandraunit.dataset.CQLDataSet;
+import org.cassandraunit.utils.AsyncStatementExecutor;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.cassandraunit.utils.InProcessQueryExecutor;
+import org.cassandraunit.utils.KeyspaceIsolation;
+import org.cassandraunit.utils.PartitionBatcher;
+import org.cassandraunit.utils.PreparedStatementRewriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 import static org.cassandraunit.utils.CqlOperations.*;
 
 /**
@@ -15,45 +37,234 @@ public class CQLDataLoader {
 
     private static final Logger log = LoggerFactory.getLogger(CQLDataLoader.class);
     public static final String DEFAULT_KEYSPACE_NAME = "cassandraunitkeyspace";
+    public static final int DEFAULT_MAX_IN_FLIGHT_STATEMENTS = 128;
+    public static final int DEFAULT_PREPARED_STATEMENT_CACHE_SIZE = 100;
 
     public Session getSession() {
         return session;
     }
 
     private final Session session;
+    private int maxInFlightStatements = 0;
+    private int maxBatchSizeInBytes = 0;
+    private int preparedStatementCacheSize = 0;
+    private InProcessQueryExecutor inProcessExecutor;
 
     public CQLDataLoader(Session session) {
         this.session = session;
     }
 
+    /**
+     * Pipelines the INSERT, UPDATE, DELETE and BATCH statements of the datasets with at most
+     * {@link #DEFAULT_MAX_IN_FLIGHT_STATEMENTS} statements in flight.
+     */
+    public CQLDataLoader withAsyncLoading() {
+        return withAsyncLoading(DEFAULT_MAX_IN_FLIGHT_STATEMENTS);
+    }
+
+    /**
+     * Pipelines the INSERT, UPDATE, DELETE and BATCH statements of the datasets with at most
+     * maxInFlightStatements statements in flight. Other statements (DDL, USE) are executed one at a time, once all the
+     * previous statements have completed. A failure is reported as a {@link org.cassandraunit.exception.CassandraUnitException}
+     * giving the position of the first failing statement in the dataset.
+     */
+    public CQLDataLoader withAsyncLoading(int maxInFlightStatements) {
+        if (maxInFlightStatements < 1) {
+            throw new IllegalArgumentException("maxInFlightStatements must be positive: " + maxInFlightStatements);
+        }
+        this.maxInFlightStatements = maxInFlightStatements;
+        return this;
+    }
+
+    /**
+     * Groups the consecutive INSERT and UPDATE statements of the datasets writing to the same partition in UNLOGGED
+     * batches of at most {@link PartitionBatcher#DEFAULT_MAX_BATCH_SIZE_IN_BYTES}.
+     */
+    public CQLDataLoader withUnloggedBatching() {
+        return withUnloggedBatching(PartitionBatcher.DEFAULT_MAX_BATCH_SIZE_IN_BYTES);
+    }
+
+    /**
+     * Groups the consecutive INSERT and UPDATE statements of the datasets writing to the same partition in UNLOGGED
+     * batches of at most maxBatchSizeInBytes. Keep it under the batch_size_warn_threshold_in_kb of the node.
+     */
+    public CQLDataLoader withUnloggedBatching(int maxBatchSizeInBytes) {
+        if (maxBatchSizeInBytes < 1) {
+            throw new IllegalArgumentException("maxBatchSizeInBytes must be positive: " + maxBatchSizeInBytes);
+        }
+        this.maxBatchSizeInBytes = maxBatchSizeInBytes;
+        return this;
+    }
+
+    /**
+     * Executes the INSERT statements of the datasets as bound statements, keeping up to
+     * {@link #DEFAULT_PREPARED_STATEMENT_CACHE_SIZE} prepared statements.
+     */
+    public CQLDataLoader withPreparedStatements() {
+        return withPreparedStatements(DEFAULT_PREPARED_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * Executes the INSERT statements of the datasets as bound statements: their literal values are replaced by bind
+     * markers, and each resulting statement is prepared once, keeping up to cacheSize prepared statements. This saves
+     * parsing the same statement again and again on the node.
+     */
+    public CQLDataLoader withPreparedStatements(int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be positive: " + cacheSize);
+        }
+        this.preparedStatementCacheSize = cacheSize;
+        return this;
+    }
+
+    /**
+     * Executes the statements of the datasets with the query handler of the embedded node running in this JVM, instead
+     * of sending them through the session: the native protocol and the driver are skipped. The loader keeps its own
+     * current keyspace, initialized from the session. The session is still set to the keyspace of the datasets once
+     * they are loaded, but its schema metadata may be refreshed a bit later than with the session.
+     * <p>
+     * Statements are executed one at a time: this cannot be combined with {@link #withAsyncLoading()} or
+     * {@link #withPreparedStatements()}, which rely on the driver.
+     */
+    public CQLDataLoader withInProcessExecution() {
+        this.inProcessExecutor = new InProcessQueryExecutor();
+        if (session != null && session.getLoggedKeyspace() != null) {
+            use(inProcessExecutor::execute).accept(Metadata.quoteIfNecessary(session.getLoggedKeyspace()));
+        }
+        return this;
+    }
+
     public void load(CQLDataSet dataSet) {
-        initKeyspaceContext(session, dataSet);
+        Consumer<String> execute;
+        if (inProcessExecutor != null) {
+            if (maxInFlightStatements > 0 || preparedStatementCacheSize > 0) {
+                throw new IllegalStateException("In-process execution cannot be combined with asynchronous loading or prepared statements");
+            }
+            execute = inProcessExecutor::execute;
+            initKeyspaceContext(execute, inProcessExecutor.getDatacenter(), dataSet);
+        } else {
+            execute = execute(session);
+            initKeyspaceContext(session, dataSet);
+        }
 
         log.debug("loading data");
-        dataSet.getCQLStatements().stream()
-                .forEach(execute(session));
+        try (Stream<String> statements = dataSet.getCQLStatementStream()
+                .map(statement -> KeyspaceIsolation.isolate(statement, dataSet.getKeyspaceName()))) {
+            if (maxInFlightStatements > 0 || maxBatchSizeInBytes > 0 || preparedStatementCacheSize > 0) {
+                loadStatements(statements.iterator());
+            } else {
+                statements.forEach(execute);
+            }
+        } finally {
+            if (inProcessExecutor != null) {
+                // written without the session of the embedded node
+                inProcessExecutor.getWrittenKeyspaces().forEach(EmbeddedCassandraServerHelper::untrackKeyspace);
+            }
+        }
 
-        if (dataSet.getKeyspaceName() != null) {
-            use(session).accept(dataSet.getKeyspaceName());
+        if (dataSet.getKeyspaceName() != null && session != null) {
+            use(session).accept(KeyspaceIsolation.isolate(dataSet.getKeyspaceName()));
+        }
+    }
+
+    private void loadStatements(Iterator<String> statements) {
+        PartitionBatcher batcher = null;
+        Iterator<List<String>> groups;
+        if (maxBatchSizeInBytes > 0) {
+            batcher = inProcessExecutor != null ?
+                    new PartitionBatcher(inProcessExecutor.getLoggedKeyspace(), inProcessExecutor::partitionKey, maxBatchSizeInBytes) :
+                    new PartitionBatcher(session.getLoggedKeyspace(), this::partitionKey, maxBatchSizeInBytes);
+            groups = batcher.group(statements);
+        } else {
+            groups = Iterators.transform(statements, Collections::singletonList);
+        }
+
+        PreparedStatementRewriter rewriter = preparedStatementCacheSize > 0 ?
+                new PreparedStatementRewriter(session, preparedStatementCacheSize) : null;
+        AsyncStatementExecutor executor = maxInFlightStatements > 0 ?
+                new AsyncStatementExecutor(session, maxInFlightStatements) : null;
+        int position = 0;
+        while (groups.hasNext()) {
+            List<String> group = groups.next();
+            int firstPosition = position + 1;
+            position += group.size();
+            String cql = PartitionBatcher.toStatement(group);
+            boolean dataManipulation = isDataManipulation(cql);
+            Statement statement;
+            if (rewriter == null) {
+                statement = new SimpleStatement(cql);
+            } else if (dataManipulation) {
+                statement = rewrite(rewriter, group);
+            } else {
+                rewriter.invalidate();
+                statement = new SimpleStatement(cql);
+            }
+
+            if (inProcessExecutor != null) {
+                inProcessExecutor.execute(cql);
+            } else if (executor == null) {
+                log.debug("executing : {}", cql);
+                session.execute(statement);
+            } else if (dataManipulation) {
+                executor.submit(firstPosition, position, statement, cql);
+            } else {
+                // schema changes and USE statements are barriers for the statements which follow them
+                executor.execute(firstPosition, position, statement, cql);
+            }
+        }
+        if (executor != null) {
+            executor.awaitCompletion();
+        }
+        if (batcher != null) {
+            batcher.logStatistics();
         }
+        if (rewriter != null) {
+            rewriter.logStatistics();
+        }
+    }
+
+    private static Statement rewrite(PreparedStatementRewriter rewriter, List<String> group) {
+        if (group.size() == 1) {
+            return rewriter.rewrite(group.get(0));
+        }
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        group.forEach(statement -> batch.add(rewriter.rewrite(statement)));
+        return batch;
+    }
+
+    private List<String> partitionKey(String keyspace, String table) {
+        KeyspaceMetadata keyspaceMetadata = session.getCluster().getMetadata().getKeyspace(Metadata.quote(keyspace));
+        TableMetadata tableMetadata = keyspaceMetadata == null ? null : keyspaceMetadata.getTable(Metadata.quote(table));
+        if (tableMetadata == null || tableMetadata.getColumns().stream()
+                .anyMatch(column -> column.getType().getName() == DataType.Name.COUNTER)) {
+            return null;
+        }
+        return tableMetadata.getPartitionKey().stream()
+                .map(ColumnMetadata::getName)
+                .collect(Collectors.toList());
+    }
+
+    static void initKeyspaceContext(Session session, CQLDataSet dataSet) {
+        initKeyspaceContext(execute(session), session.getCluster().getMetadata().getAllHosts().iterator().next().getDatacenter(),
+                dataSet);
     }
 
-    private void initKeyspaceContext(Session session, CQLDataSet dataSet) {
+    private static void initKeyspaceContext(Consumer<String> execute, String datacenter, CQLDataSet dataSet) {
         String keyspaceName = DEFAULT_KEYSPACE_NAME;
         if (dataSet.getKeyspaceName() != null) {
-            keyspaceName = dataSet.getKeyspaceName();
+            keyspaceName = KeyspaceIsolation.isolate(dataSet.getKeyspaceName());
         }
 
         log.debug("initKeyspaceContext : keyspaceDeletion={} keyspaceCreation={} ;keyspaceName={}",
                 dataSet.isKeyspaceDeletion(), dataSet.isKeyspaceCreation(), keyspaceName);
 
         if (dataSet.isKeyspaceDeletion()) {
-            dropKeyspace(session).accept(keyspaceName);
+            dropKeyspace(execute).accept(keyspaceName);
         }
 
         if (dataSet.isKeyspaceCreation()) {
-            createKeyspace(session).accept(keyspaceName);
-            use(session).accept(keyspaceName);
+            createKeyspace(execute, datacenter).accept(keyspaceName);
+            use(execute).accept(keyspaceName);
         }
     }
 }
\ No newline at end of file
@@ -1,10 +1,25 @@
 package org.cassandraunit;
 
 import org.cassandraunit.dataset.CQLDataSet;
+import org.cassandraunit.dataset.cql.CQLModification;
+import org.cassandraunit.utils.CqlOperations;
+import org.cassandraunit.utils.DriverSettings;
 import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.cassandraunit.utils.KeyspaceIsolation;
+import org.cassandraunit.utils.WriteTrackingSession;
 
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * @author Marcin Szymaniuk
@@ -13,7 +28,11 @@ import com.datastax.driver.core.Session;
  */
 public class CassandraCQLUnit extends BaseCassandraUnit {
 
+	/** datasets loaded by the units, by keyspace, for the keyspaces reset rather than reloaded */
+	private static final Map<String, LoadedDataSet> loadedDataSets = new ConcurrentHashMap<>();
+
 	private CQLDataSet dataSet;
+	private ResetStrategy resetStrategy = ResetStrategy.RESTORE_SNAPSHOT;
 	public Session session;
 	public Cluster cluster;
 
@@ -59,16 +78,120 @@ public class CassandraCQLUnit extends BaseCassandraUnit {
 		this.readTimeoutMillis = readTimeoutMillis;
 	}
 
+	/**
+	 * Sets how the keyspace of the dataset is brought back to its loaded content between tests,
+	 * {@link ResetStrategy#RESTORE_SNAPSHOT} by default.
+	 */
+	public CassandraCQLUnit withResetStrategy(ResetStrategy resetStrategy) {
+		this.resetStrategy = resetStrategy;
+		return this;
+	}
+
+	/**
+	 * Sets the driver settings of the shared cluster, including its read timeout, by default those of the
+	 * {@code cassandra-unit.driver.*} system properties. Each distinct settings get their own cluster, so that the
+	 * sessions of the units using other settings stay open.
+	 */
+	public CassandraCQLUnit withDriverSettings(DriverSettings driverSettings) {
+		this.driverSettings = driverSettings;
+		this.readTimeoutMillis = driverSettings.getReadTimeoutMillis();
+		return this;
+	}
+
 	@Override
 	protected void load() {
 		cluster = EmbeddedCassandraServerHelper.getCluster();
 		session = EmbeddedCassandraServerHelper.getSession();
+		if (dataSet != null && reset()) {
+			return;
+		}
 		CQLDataLoader dataLoader = new CQLDataLoader(session);
-		if (dataSet != null)
+		if (dataSet != null) {
 			dataLoader.load(dataSet);
+			loaded();
+		}
 		session = dataLoader.getSession();
 	}
 
+	/**
+	 * Resets the keyspace of the dataset if the dataset is still loaded in it.
+	 *
+	 * @return false if the dataset must be loaded
+	 */
+	private boolean reset() {
+		if (!isReset()) {
+			return false;
+		}
+		String keyspace = keyspace();
+		LoadedDataSet loaded = loadedDataSets.get(keyspace);
+		if (loaded == null || !loaded.tables.equals(tables(keyspace))
+				|| !loaded.statements.equals(dataSet.getCQLStatements())) {
+			return false;
+		}
+		switch (resetStrategy) {
+			case TRUNCATE_CHANGED:
+				EmbeddedCassandraServerHelper.cleanDataEmbeddedCassandra(keyspace);
+				break;
+			case RESTORE_SNAPSHOT:
+				if (!EmbeddedCassandraServerHelper.restoreKeyspace(keyspace)) {
+					return false;
+				}
+				break;
+			default:
+				break;
+		}
+		CqlOperations.use(session).accept(Metadata.quoteIfNecessary(keyspace));
+		return true;
+	}
+
+	private void loaded() {
+		if (!isReset()) {
+			return;
+		}
+		String keyspace = keyspace();
+		if (resetStrategy == ResetStrategy.RESTORE_SNAPSHOT) {
+			EmbeddedCassandraServerHelper.snapshotKeyspace(keyspace);
+		} else if (resetStrategy == ResetStrategy.TRUNCATE_CHANGED && session instanceof WriteTrackingSession) {
+			// the tables of the dataset are only truncated once written to
+			((WriteTrackingSession) session).markClean(keyspace);
+		}
+		loadedDataSets.put(keyspace, new LoadedDataSet(dataSet.getCQLStatements(), tables(keyspace)));
+	}
+
+	private boolean isReset() {
+		return resetStrategy != ResetStrategy.DROP_AND_RELOAD && dataSet.isKeyspaceCreation() && dataSet.isKeyspaceDeletion();
+	}
+
+	/**
+	 * @return the internal name of the keyspace of the dataset, isolated for this JVM if needed
+	 */
+	String keyspace() {
+		if (dataSet.getKeyspaceName() == null) {
+			return CQLDataLoader.DEFAULT_KEYSPACE_NAME;
+		}
+		return CQLModification.internalName(KeyspaceIsolation.isolate(dataSet.getKeyspaceName()));
+	}
+
+	private Map<String, UUID> tables(String keyspace) {
+		KeyspaceMetadata metadata = cluster.getMetadata().getKeyspace(Metadata.quote(keyspace));
+		if (metadata == null) {
+			return Collections.emptyMap();
+		}
+		return metadata.getTables().stream().collect(Collectors.toMap(TableMetadata::getName, TableMetadata::getId));
+	}
+
+	private static class LoadedDataSet {
+
+		private final List<String> statements;
+		/** ids of the tables once loaded, which change when the keyspace is loaded again */
+		private final Map<String, UUID> tables;
+
+		LoadedDataSet(List<String> statements, Map<String, UUID> tables) {
+			this.statements = statements;
+			this.tables = tables;
+		}
+	}
+
 	@Override
 	protected void after() {
 		super.after();
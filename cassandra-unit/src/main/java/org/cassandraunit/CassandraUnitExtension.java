@@ -0,0 +1,223 @@
+package org.cassandraunit;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Session;
+import org.cassandraunit.dataset.CQLDataSet;
+import org.cassandraunit.dataset.cql.CQLModification;
+import org.cassandraunit.utils.DriverSettings;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.cassandraunit.utils.KeyspaceIsolation;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.cassandraunit.utils.CqlOperations.dropKeyspace;
+
+/**
+ * JUnit 5 extension loading a dataset in a keyspace of its own for each test class, or each test method, so that test
+ * classes can run concurrently against the embedded node:
+ *
+ * <pre>
+ * &#64;RegisterExtension
+ * static CassandraUnitExtension cassandra = new CassandraUnitExtension(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+ *
+ * &#64;Test
+ * void test(Session session) {
+ *     session.execute("select * from mytable");
+ * }
+ * </pre>
+ * <p>
+ * The keyspace is named after the keyspace of the dataset followed by a unique number, and is dropped, with only that
+ * keyspace, once the test class or method completes. Test methods may declare a {@link Session} parameter, logged into
+ * the keyspace, or a {@link Cluster} parameter. The statements of the dataset should not name its keyspace.
+ */
+public class CassandraUnitExtension implements BeforeAllCallback, BeforeEachCallback, ParameterResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CassandraUnitExtension.class);
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(CassandraUnitExtension.class);
+    /** keeps room for the suffix of the fork, keyspace names are limited to 48 characters */
+    static final int MAX_PREFIX_LENGTH = 32;
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    private final CQLDataSet dataSet;
+    private String configurationFileName = EmbeddedCassandraServerHelper.DEFAULT_CASSANDRA_YML_FILE;
+    private long startupTimeoutMillis = EmbeddedCassandraServerHelper.DEFAULT_STARTUP_TIMEOUT;
+    private boolean keyspacePerMethod = false;
+    private DriverSettings driverSettings = null;
+
+    public CassandraUnitExtension(CQLDataSet dataSet) {
+        this.dataSet = dataSet;
+    }
+
+    public CassandraUnitExtension withConfiguration(String configurationFileName) {
+        this.configurationFileName = configurationFileName;
+        return this;
+    }
+
+    public CassandraUnitExtension withStartupTimeout(long startupTimeoutMillis) {
+        this.startupTimeoutMillis = startupTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Sets the driver settings of the shared cluster, by default those of the {@code cassandra-unit.driver.*} system
+     * properties.
+     */
+    public CassandraUnitExtension withDriverSettings(DriverSettings driverSettings) {
+        this.driverSettings = driverSettings;
+        return this;
+    }
+
+    /**
+     * Loads the dataset in a new keyspace for each test method, rather than once for the test class.
+     */
+    public CassandraUnitExtension withKeyspacePerMethod() {
+        this.keyspacePerMethod = true;
+        return this;
+    }
+
+    @Override
+    public void beforeAll(ExtensionContext context) throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra(configurationFileName, startupTimeoutMillis);
+        if (driverSettings != null) {
+            EmbeddedCassandraServerHelper.useDriverSettings(driverSettings);
+        }
+        if (!keyspacePerMethod) {
+            load(context);
+        }
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        if (keyspacePerMethod) {
+            load(context);
+        }
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        Class<?> type = parameterContext.getParameter().getType();
+        return type == Session.class || type == Cluster.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        if (parameterContext.getParameter().getType() == Cluster.class) {
+            return EmbeddedCassandraServerHelper.getCluster();
+        }
+        return getSession(extensionContext);
+    }
+
+    /**
+     * @return the session logged into the keyspace of the test class or method of the context
+     */
+    public Session getSession(ExtensionContext context) {
+        LoadedKeyspace loaded = context.getStore(NAMESPACE).get(LoadedKeyspace.class, LoadedKeyspace.class);
+        if (loaded == null) {
+            throw new ParameterResolutionException("No keyspace loaded for " + context.getDisplayName()
+                    + ", with a keyspace per method the session is only available to test methods");
+        }
+        return loaded.session;
+    }
+
+    private void load(ExtensionContext context) {
+        String keyspace = KeyspaceIsolation.isolate(keyspaceName(dataSet.getKeyspaceName(), sequence.incrementAndGet()));
+        Session session = EmbeddedCassandraServerHelper.getCluster().connect();
+        LoadedKeyspace loaded = new LoadedKeyspace(keyspace, session);
+        // registered before loading, so that a failed load is cleaned up as well
+        context.getStore(NAMESPACE).put(LoadedKeyspace.class, loaded);
+        log.debug("loading {} in keyspace {}", context.getDisplayName(), keyspace);
+        new CQLDataLoader(session).load(new RenamedKeyspaceDataSet(dataSet, keyspace));
+    }
+
+    static String keyspaceName(String keyspace, int sequence) {
+        String prefix = keyspace == null ? CQLDataLoader.DEFAULT_KEYSPACE_NAME : keyspace;
+        prefix = prefix.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "");
+        if (prefix.isEmpty() || !Character.isLetter(prefix.charAt(0))) {
+            prefix = "ks" + prefix;
+        }
+        if (prefix.length() > MAX_PREFIX_LENGTH) {
+            prefix = prefix.substring(0, MAX_PREFIX_LENGTH);
+        }
+        return prefix + "_" + sequence;
+    }
+
+    private static class LoadedKeyspace implements ExtensionContext.Store.CloseableResource {
+
+        private final String keyspace;
+        private final Session session;
+
+        LoadedKeyspace(String keyspace, Session session) {
+            this.keyspace = keyspace;
+            this.session = session;
+        }
+
+        @Override
+        public void close() {
+            try {
+                dropKeyspace(session).accept(keyspace);
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    private static class RenamedKeyspaceDataSet implements CQLDataSet {
+
+        private final CQLDataSet dataSet;
+        private final String keyspace;
+
+        RenamedKeyspaceDataSet(CQLDataSet dataSet, String keyspace) {
+            this.dataSet = dataSet;
+            this.keyspace = keyspace;
+        }
+
+        @Override
+        public List<String> getCQLStatements() {
+            return dataSet.getCQLStatements().stream().map(this::rename).collect(Collectors.toList());
+        }
+
+        @Override
+        public Stream<String> getCQLStatementStream() {
+            return dataSet.getCQLStatementStream().map(this::rename);
+        }
+
+        /**
+         * @return the statement, naming the generated keyspace where it names the keyspace of the dataset
+         */
+        private String rename(String statement) {
+            if (dataSet.getKeyspaceName() == null) {
+                return statement;
+            }
+            return CQLModification.renameKeyspace(statement, CQLModification.internalName(dataSet.getKeyspaceName()), keyspace);
+        }
+
+        @Override
+        public String getKeyspaceName() {
+            return keyspace;
+        }
+
+        @Override
+        public boolean isKeyspaceCreation() {
+            return true;
+        }
+
+        @Override
+        public boolean isKeyspaceDeletion() {
+            return false;
+        }
+    }
+}
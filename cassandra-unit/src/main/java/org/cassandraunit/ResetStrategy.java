@@ -0,0 +1,33 @@
+package org.cassandraunit;
+
+/**
+ * How {@link CassandraCQLUnit} and {@link AbstractCassandraUnit4CQLTestCase} bring the keyspace of their dataset back
+ * to its loaded content between tests. Except for {@link #DROP_AND_RELOAD}, the dataset is loaded once and the keyspace
+ * is reset before it is used by the next test; it is loaded again if its tables were dropped or recreated since, e.g.
+ * by another test. Datasets which do not drop and create their keyspace are always reloaded.
+ */
+public enum ResetStrategy {
+
+    /**
+     * The keyspace is left as the previous test left it.
+     */
+    NONE,
+
+    /**
+     * The tables written to are truncated: with a session tracking writes, see
+     * {@link org.cassandraunit.utils.EmbeddedCassandraServerHelper#WRITE_TRACKING_PROPERTY}, only the tables written to
+     * since the dataset was loaded, otherwise every table holding data. Suited to datasets creating the schema only.
+     */
+    TRUNCATE_CHANGED,
+
+    /**
+     * The keyspace is snapshotted once loaded and restored from the snapshot, or reloaded when it cannot be restored,
+     * e.g. on a forked node.
+     */
+    RESTORE_SNAPSHOT,
+
+    /**
+     * The keyspace is dropped and the dataset loaded again for every test.
+     */
+    DROP_AND_RELOAD
+}
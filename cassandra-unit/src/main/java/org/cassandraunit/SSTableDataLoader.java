@@ -0,0 +1,73 @@
+package org.cassandraunit;
+
+import com.datastax.driver.core.Session;
+import org.cassandraunit.dataset.CQLDataSet;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.cassandraunit.utils.KeyspaceIsolation;
+import org.cassandraunit.utils.SSTableImporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.stream.Stream;
+
+import static org.cassandraunit.utils.CqlOperations.execute;
+import static org.cassandraunit.utils.CqlOperations.use;
+
+/**
+ * Loads large datasets into the embedded node running in this JVM: the INSERT statements with literal values are
+ * written to SSTables and attached to their tables, while the other statements are executed with the session, in the
+ * dataset order.
+ *
+ * @see SSTableImporter
+ */
+public class SSTableDataLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(SSTableDataLoader.class);
+
+    private final Session session;
+    private int bufferSizeInMB = SSTableImporter.DEFAULT_BUFFER_SIZE_IN_MB;
+
+    public SSTableDataLoader(Session session) {
+        this.session = session;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Sets the amount of rows buffered in memory, per table, before they are written to a new SSTable.
+     */
+    public SSTableDataLoader withBufferSizeInMB(int bufferSizeInMB) {
+        if (bufferSizeInMB < 1) {
+            throw new IllegalArgumentException("bufferSizeInMB must be positive: " + bufferSizeInMB);
+        }
+        this.bufferSizeInMB = bufferSizeInMB;
+        return this;
+    }
+
+    public void load(CQLDataSet dataSet) {
+        CQLDataLoader.initKeyspaceContext(session, dataSet);
+
+        log.debug("importing data");
+        SSTableImporter importer = new SSTableImporter(session, bufferSizeInMB);
+        try (Stream<String> statements = dataSet.getCQLStatementStream()) {
+            statements.forEachOrdered(statement -> {
+                if (!importer.add(statement)) {
+                    // the imported rows must be visible to the statement
+                    importer.flush();
+                    execute(session).accept(statement);
+                }
+            });
+            importer.flush();
+        } finally {
+            // written without the session of the embedded node
+            importer.getImportedKeyspaces().forEach(EmbeddedCassandraServerHelper::untrackKeyspace);
+        }
+        importer.logStatistics();
+
+        if (dataSet.getKeyspaceName() != null) {
+            use(session).accept(KeyspaceIsolation.isolate(dataSet.getKeyspaceName()));
+        }
+    }
+}
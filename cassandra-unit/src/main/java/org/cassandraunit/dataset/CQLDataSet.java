@@ -1,6 +1,7 @@
 package org.cassandraunit.dataset;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author Jeremy Sevellec
@@ -9,6 +10,14 @@ public interface CQLDataSet {
 
     List<String> getCQLStatements();
 
+    /**
+     * Gives the statements as they are read, without holding the whole dataset in memory.
+     * The stream must be closed once consumed.
+     */
+    default Stream<String> getCQLStatementStream() {
+        return getCQLStatements().stream();
+    }
+
     String getKeyspaceName();
 
     boolean isKeyspaceCreation();
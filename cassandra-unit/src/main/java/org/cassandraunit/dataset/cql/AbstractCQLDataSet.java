@@ -9,6 +9,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Jeremy Sevellec
@@ -47,14 +48,35 @@ public abstract class AbstractCQLDataSet implements CQLDataSet {
 
     protected abstract InputStream getInputDataSetLocation(String dataSetLocation);
 
+    protected String getDataSetLocation() {
+        return dataSetLocation;
+    }
+
     @Override
     public List<String> getCQLStatements() {
-        return linesToCQLStatements(getLines());
+        try (Stream<String> statements = getCQLStatementStream()) {
+            return statements.collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public Stream<String> getCQLStatementStream() {
+        return readCQLStatements();
     }
 
-    private List<String> linesToCQLStatements(List<String> lines) {
-    	SimpleCQLLexer lexer = new SimpleCQLLexer(lines);
-    	return lexer.getStatements();
+    /**
+     * Lexes the statements of the dataset as they are read.
+     */
+    protected Stream<String> readCQLStatements() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(getInputDataSetLocation(dataSetLocation)));
+        return new SimpleCQLLexer(reader).stream()
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new ParseException(e);
+                    }
+                });
     }
 
     public List<String> getLines() {
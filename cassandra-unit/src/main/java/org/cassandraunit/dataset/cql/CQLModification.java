@@ -0,0 +1,406 @@
+package org.cassandraunit.dataset.cql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A simple INSERT or UPDATE statement, split into the parts needed to route and rewrite it: target table, columns
+ * and the raw text of their terms. Only the common forms found in datasets are recognized, see {@link #parse(String)}.
+ */
+public class CQLModification {
+
+    public enum Type {
+        INSERT,
+        UPDATE
+    }
+
+    private final Type type;
+    private final String keyspace;
+    private final String table;
+    private final List<String> columns;
+    private final List<String> terms;
+    private final String insertTail;
+
+    private CQLModification(Type type, String keyspace, String table, List<String> columns, List<String> terms,
+                            String insertTail) {
+        this.type = type;
+        this.keyspace = keyspace;
+        this.table = table;
+        this.columns = Collections.unmodifiableList(columns);
+        this.terms = Collections.unmodifiableList(terms);
+        this.insertTail = insertTail;
+    }
+
+    /**
+     * Parses <code>INSERT INTO [ks.]table (columns) VALUES (terms) [USING ...];</code> and
+     * <code>UPDATE [ks.]table [USING ...] SET ... WHERE col = term [AND col = term ...];</code> statements.
+     *
+     * @return the parsed statement, or null if the statement has another form (conditional updates, JSON inserts,
+     * IN restrictions, bind markers...)
+     */
+    public static CQLModification parse(String statement) {
+        try {
+            Scanner scanner = new Scanner(statement);
+            String keyword = scanner.keyword();
+            if ("INSERT".equals(keyword)) {
+                return parseInsert(scanner);
+            }
+            if ("UPDATE".equals(keyword)) {
+                return parseUpdate(scanner);
+            }
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static CQLModification parseInsert(Scanner scanner) {
+        scanner.expectKeyword("INTO");
+        String[] target = scanner.qualifiedName();
+        scanner.expect('(');
+        List<String> columns = new ArrayList<>();
+        do {
+            columns.add(scanner.identifier());
+        } while (scanner.accept(','));
+        scanner.expect(')');
+        scanner.expectKeyword("VALUES");
+        scanner.expect('(');
+        List<String> terms = new ArrayList<>();
+        do {
+            terms.add(scanner.term(false));
+        } while (scanner.accept(','));
+        scanner.expect(')');
+        if (columns.size() != terms.size()) {
+            throw new IllegalArgumentException("columns and values do not match");
+        }
+        String tail = scanner.remaining();
+        if (hasKeyword(tail, "IF")) {
+            throw new IllegalArgumentException("conditional insert");
+        }
+        return new CQLModification(Type.INSERT, target[0], target[1], columns, terms, tail);
+    }
+
+    private static CQLModification parseUpdate(Scanner scanner) {
+        String[] target = scanner.qualifiedName();
+        scanner.skipUntilKeyword("WHERE");
+        List<String> columns = new ArrayList<>();
+        List<String> terms = new ArrayList<>();
+        do {
+            columns.add(scanner.identifier());
+            scanner.expect('=');
+            terms.add(scanner.term(true));
+        } while (scanner.acceptKeyword("AND"));
+        String tail = scanner.remaining();
+        if (!tail.isEmpty() && !";".equals(tail)) {
+            throw new IllegalArgumentException("conditional update");
+        }
+        return new CQLModification(Type.UPDATE, target[0], target[1], columns, terms, null);
+    }
+
+    /**
+     * Renames a keyspace in a statement: the keyspace qualifying a table, type or function name, and the keyspace
+     * named by USE and keyspace statements. String literals and comments are left as they are.
+     *
+     * @param keyspace the internal name of the keyspace
+     * @param renamed  the new name of the keyspace, as written in a statement
+     * @return the statement, with the new name if it names the keyspace
+     */
+    public static String renameKeyspace(String statement, String keyspace, String renamed) {
+        Scanner scanner = new Scanner(statement);
+        StringBuilder result = new StringBuilder(statement.length());
+        int copied = 0;
+        // USE ks, KEYSPACE [IF [NOT] EXISTS] ks
+        boolean keyspaceExpected = false;
+        try {
+            while (scanner.skipToIdentifier()) {
+                int start = scanner.pos;
+                String identifier = scanner.identifier();
+                int end = scanner.pos;
+                boolean qualifier = scanner.accept('.');
+                if ((qualifier || keyspaceExpected) && internalName(identifier).equals(keyspace)) {
+                    result.append(statement, copied, start).append(renamed);
+                    copied = end;
+                }
+                String word = identifier.toUpperCase(Locale.ROOT);
+                keyspaceExpected = "USE".equals(word) || "KEYSPACE".equals(word)
+                        || (keyspaceExpected && ("IF".equals(word) || "NOT".equals(word) || "EXISTS".equals(word)));
+            }
+        } catch (IllegalArgumentException e) {
+            // unterminated literal, left to the node to reject
+            return statement;
+        }
+        return result.append(statement, copied, statement.length()).toString();
+    }
+
+    private static boolean hasKeyword(String text, String keyword) {
+        return (" " + text.toUpperCase(Locale.ROOT) + " ").matches("(?s).*[\\s;]" + keyword + "\\s.*");
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the keyspace identifier as written in the statement, or null if the table is not qualified
+     */
+    public String getKeyspace() {
+        return keyspace;
+    }
+
+    /**
+     * @return the table identifier as written in the statement
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * @return the column identifiers as written in the statement: the inserted columns for an INSERT, the columns of the
+     * WHERE clause for an UPDATE
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the raw text of the terms given to {@link #getColumns()}
+     */
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * @return the raw term given to a column, or null if the column is not set or restricted by the statement
+     */
+    public String getTerm(String columnName) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (internalName(columns.get(i)).equals(columnName)) {
+                return terms.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return what follows the VALUES clause of an INSERT (USING clause, semicolon), null for an UPDATE
+     */
+    public String getInsertTail() {
+        return insertTail;
+    }
+
+    /**
+     * Converts an identifier as written in a statement to the name stored in the schema: quoted identifiers are case
+     * sensitive, unquoted ones are lower-cased.
+     */
+    public static String internalName(String identifier) {
+        if (identifier.length() > 1 && identifier.startsWith("\"") && identifier.endsWith("\"")) {
+            return identifier.substring(1, identifier.length() - 1).replace("\"\"", "\"");
+        }
+        return identifier.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Scanner {
+
+        private final String text;
+        private int pos = 0;
+
+        Scanner(String text) {
+            this.text = text;
+        }
+
+        String keyword() {
+            skipWhitespace();
+            int start = pos;
+            while (pos < text.length() && Character.isLetter(text.charAt(pos))) {
+                pos++;
+            }
+            return text.substring(start, pos).toUpperCase(Locale.ROOT);
+        }
+
+        void expectKeyword(String expected) {
+            if (!acceptKeyword(expected)) {
+                throw new IllegalArgumentException("expected " + expected + " at " + pos);
+            }
+        }
+
+        boolean acceptKeyword(String expected) {
+            int start = pos;
+            String keyword = keyword();
+            if (keyword.equals(expected) && (pos == text.length() || !isIdentifierPart(text.charAt(pos)))) {
+                return true;
+            }
+            pos = start;
+            return false;
+        }
+
+        void skipUntilKeyword(String expected) {
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '\'' || c == '"') {
+                    skipQuoted(c);
+                } else if (c == '$' && text.startsWith("$$", pos)) {
+                    skipDollarQuoted();
+                } else if (c == '?') {
+                    throw new IllegalArgumentException("bind marker");
+                } else if (isIdentifierPart(c)) {
+                    int start = pos;
+                    while (pos < text.length() && isIdentifierPart(text.charAt(pos))) {
+                        pos++;
+                    }
+                    if (text.substring(start, pos).equalsIgnoreCase(expected)) {
+                        return;
+                    }
+                } else {
+                    pos++;
+                }
+            }
+            throw new IllegalArgumentException("expected " + expected);
+        }
+
+        /**
+         * Moves to the next identifier or keyword, skipping string literals and comments.
+         *
+         * @return false at the end of the text
+         */
+        boolean skipToIdentifier() {
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '"' || isIdentifierPart(c)) {
+                    return true;
+                }
+                if (c == '\'') {
+                    skipQuoted(c);
+                } else if (c == '$' && text.startsWith("$$", pos)) {
+                    skipDollarQuoted();
+                } else if (text.startsWith("--", pos) || text.startsWith("//", pos)) {
+                    int end = text.indexOf('\n', pos);
+                    pos = end < 0 ? text.length() : end;
+                } else if (text.startsWith("/*", pos)) {
+                    int end = text.indexOf("*/", pos + 2);
+                    pos = end < 0 ? text.length() : end + 2;
+                } else {
+                    pos++;
+                }
+            }
+            return false;
+        }
+
+        String[] qualifiedName() {
+            String first = identifier();
+            if (accept('.')) {
+                return new String[]{first, identifier()};
+            }
+            return new String[]{null, first};
+        }
+
+        String identifier() {
+            skipWhitespace();
+            int start = pos;
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                skipQuoted('"');
+            } else {
+                while (pos < text.length() && isIdentifierPart(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            if (start == pos) {
+                throw new IllegalArgumentException("expected identifier at " + pos);
+            }
+            return text.substring(start, pos);
+        }
+
+        void expect(char expected) {
+            if (!accept(expected)) {
+                throw new IllegalArgumentException("expected " + expected + " at " + pos);
+            }
+        }
+
+        boolean accept(char expected) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == expected) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Reads a term up to the next top-level comma or closing parenthesis, or whitespace if stopAtWhitespace.
+         */
+        String term(boolean stopAtWhitespace) {
+            skipWhitespace();
+            int start = pos;
+            int depth = 0;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '\'' || c == '"') {
+                    skipQuoted(c);
+                    continue;
+                }
+                if (c == '$' && text.startsWith("$$", pos)) {
+                    skipDollarQuoted();
+                    continue;
+                }
+                if (c == '?' || (c == ':' && depth == 0)) {
+                    throw new IllegalArgumentException("bind marker");
+                }
+                if (c == '(' || c == '[' || c == '{') {
+                    depth++;
+                } else if (c == ')' || c == ']' || c == '}') {
+                    if (depth == 0) {
+                        break;
+                    }
+                    depth--;
+                } else if (depth == 0 && (c == ',' || c == ';' || (stopAtWhitespace && Character.isWhitespace(c)))) {
+                    break;
+                }
+                pos++;
+            }
+            String term = text.substring(start, pos).trim();
+            if (term.isEmpty()) {
+                throw new IllegalArgumentException("expected term at " + pos);
+            }
+            return term;
+        }
+
+        String remaining() {
+            return text.substring(pos).trim();
+        }
+
+        private void skipQuoted(char quote) {
+            pos++;
+            while (pos < text.length()) {
+                if (text.charAt(pos) == quote) {
+                    if (pos + 1 < text.length() && text.charAt(pos + 1) == quote) {
+                        pos += 2;
+                        continue;
+                    }
+                    pos++;
+                    return;
+                }
+                pos++;
+            }
+            throw new IllegalArgumentException("unterminated quote");
+        }
+
+        private void skipDollarQuoted() {
+            int end = text.indexOf("$$", pos + 2);
+            if (end < 0) {
+                throw new IllegalArgumentException("unterminated string");
+            }
+            pos = end + 2;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private static boolean isIdentifierPart(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.cassandraunit.dataset.cql;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JVM-wide cache of lexed datasets, so that a fixture shared by many test classes is read and lexed once.
+ * Entries are keyed by the dataset location with its modification time and its size, so that a lookup does not read
+ * the dataset, and the least recently used ones are evicted once the estimated size of the cached statements exceeds
+ * the limit, which can be set with the {@value #MAX_SIZE_PROPERTY} system property.
+ */
+public class CQLStatementCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CQLStatementCache.class);
+
+    public static final String MAX_SIZE_PROPERTY = "cassandra-unit.statementCache.maxSizeInBytes";
+    public static final long DEFAULT_MAX_SIZE_IN_BYTES = 64L * 1024 * 1024;
+
+    private static final CQLStatementCache instance =
+            new CQLStatementCache(Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE_IN_BYTES));
+
+    private final long maxSizeInBytes;
+    private final LinkedHashMap<String, List<String>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeInBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public CQLStatementCache(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    public static CQLStatementCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the cached statements, or null if they are not in the cache
+     */
+    public synchronized List<String> get(String key) {
+        List<String> statements = entries.get(key);
+        if (statements == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return statements;
+    }
+
+    /**
+     * Caches the statements, unless they are larger than the cache.
+     *
+     * @return an unmodifiable view of the statements
+     */
+    public synchronized List<String> put(String key, List<String> statements) {
+        List<String> cached = Collections.unmodifiableList(statements);
+        long size = sizeOf(statements);
+        if (size > maxSizeInBytes) {
+            log.debug("not caching {}, its {} bytes exceed the cache size", key, size);
+            return cached;
+        }
+        List<String> previous = entries.put(key, cached);
+        if (previous != null) {
+            sizeInBytes -= sizeOf(previous);
+        }
+        sizeInBytes += size;
+        Iterator<Map.Entry<String, List<String>>> eldest = entries.entrySet().iterator();
+        while (sizeInBytes > maxSizeInBytes && eldest.hasNext()) {
+            Map.Entry<String, List<String>> entry = eldest.next();
+            sizeInBytes -= sizeOf(entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+        return cached;
+    }
+
+    /**
+     * Whether a dataset of the given size could be cached at all.
+     */
+    public boolean accepts(long datasetSizeInBytes) {
+        // the lexed statements take about two bytes per character of the dataset
+        return datasetSizeInBytes * 2 <= maxSizeInBytes;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        sizeInBytes = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    private static long sizeOf(List<String> statements) {
+        long size = 0;
+        for (String statement : statements) {
+            size += 40 + 2L * statement.length();
+        }
+        return size;
+    }
+}
@@ -1,10 +1,22 @@
 package org.cassandraunit.dataset.cql;
 
 import org.cassandraunit.dataset.CQLDataSet;
+import org.cassandraunit.dataset.ParseException;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
+ * Statements are kept in the JVM-wide {@link CQLStatementCache}, so that a dataset shared by several test classes is
+ * only lexed again when it is modified.
+ *
  * @author Jeremy Sevellec
  */
 public class ClassPathCQLDataSet extends AbstractCQLDataSet implements CQLDataSet {
@@ -37,4 +49,86 @@ public class ClassPathCQLDataSet extends AbstractCQLDataSet implements CQLDataSe
     protected InputStream getInputDataSetLocation(String dataSetLocation) {
         return this.getClass().getResourceAsStream("/" + dataSetLocation);
     }
+
+    @Override
+    public List<String> getCQLStatements() {
+        return getCQLStatements(ResourceVersion.of(getResource()));
+    }
+
+    @Override
+    public Stream<String> getCQLStatementStream() {
+        ResourceVersion version = ResourceVersion.of(getResource());
+        if (!CQLStatementCache.getInstance().accepts(version.contentLength)) {
+            // too large to be cached, keep it streamed
+            return readCQLStatements();
+        }
+        return getCQLStatements(version).stream();
+    }
+
+    private List<String> getCQLStatements(ResourceVersion version) {
+        CQLStatementCache cache = CQLStatementCache.getInstance();
+        String key = version.cacheKey();
+        List<String> statements = cache.get(key);
+        if (statements == null) {
+            statements = cache.put(key, lexStatements());
+        }
+        return statements;
+    }
+
+    private List<String> lexStatements() {
+        try (Stream<String> statements = readCQLStatements()) {
+            return statements.collect(Collectors.toList());
+        }
+    }
+
+    private URL getResource() {
+        return this.getClass().getResource("/" + getDataSetLocation());
+    }
+
+    /**
+     * The modification time and the size of the dataset, read once per lookup.
+     */
+    private static class ResourceVersion {
+
+        private final URL url;
+        private final long lastModified;
+        private final long contentLength;
+
+        private ResourceVersion(URL url, long lastModified, long contentLength) {
+            this.url = url;
+            this.lastModified = lastModified;
+            this.contentLength = contentLength;
+        }
+
+        static ResourceVersion of(URL url) {
+            if ("file".equals(url.getProtocol())) {
+                // file URLs are read as files, their connection would open the file without closing it
+                File file = toFile(url);
+                return new ResourceVersion(url, file.lastModified(), file.length());
+            }
+            try {
+                // the modification time of the jar for jar entries
+                URLConnection connection = url.openConnection();
+                return new ResourceVersion(url, connection.getLastModified(), connection.getContentLengthLong());
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+        }
+
+        private static File toFile(URL url) {
+            try {
+                return new File(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new ParseException(e);
+            }
+        }
+
+        /**
+         * @return the URL of the dataset with its modification time and its size, so that a cache hit does not read
+         * the dataset
+         */
+        String cacheKey() {
+            return url + "#" + lastModified + "#" + contentLength;
+        }
+    }
 }
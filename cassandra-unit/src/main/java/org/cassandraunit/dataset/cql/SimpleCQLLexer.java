@@ -1,8 +1,18 @@
 package org.cassandraunit.dataset.cql;
 
+import org.cassandraunit.dataset.ParseException;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Steve Nicolai
@@ -12,12 +22,16 @@ import java.util.stream.Collectors;
  * https://github.com/apache/cassandra/blob/trunk/src/java/org/apache/cassandra/cql3/Cql.g
  * 
  * This parser a series of lines, removes comments and breaks the lines into statements
- * at semicolon boundaries.
+ * at semicolon boundaries. Lines are consumed as statements are requested, so that a
+ * dataset read from a Reader never needs to be held in memory.
  */
 
 public class SimpleCQLLexer {
 	
-	String text;
+	private final Iterator<String> lines;
+	private String line = "";
+	private boolean firstLine = true;
+	private final StringBuilder statementUnderConstruction = new StringBuilder();
 	
     enum LexState {
     	
@@ -33,24 +47,44 @@ public class SimpleCQLLexer {
     int pos;
 
 	public SimpleCQLLexer(List<String> lines) {
-		text = lines.stream()
-				.map(String::trim)
-				.collect(Collectors.joining("\n"));
+		this(lines.iterator());
+	}
 
+	public SimpleCQLLexer(Reader reader) {
+		this(new BufferedReader(reader).lines().iterator());
+	}
+
+	private SimpleCQLLexer(Iterator<String> lines) {
+		this.lines = lines;
     	pos = 0;
     	state = LexState.DEFAULT;
 	}
+
+	/* Make sure the current line has a character at pos, reading the next lines if needed.
+	 * The lines are trimmed and joined with '\n'.
+	 */
+	private boolean fill() {
+		while (pos >= line.length()) {
+			if (!lines.hasNext())
+				return false;
+			String next = lines.next().trim();
+			line = firstLine ? next : "\n" + next;
+			firstLine = false;
+			pos = 0;
+		}
+		return true;
+	}
 	
 	char getChar() {
-		if (pos < text.length())
-			return text.charAt(pos++);
+		if (fill())
+			return line.charAt(pos++);
 		else
 			return 0;
 	}
 	
 	char peekAhead() {
-		if (pos < text.length())
-			return text.charAt(pos);  // don't advance
+		if (fill())
+			return line.charAt(pos);  // don't advance
 		else
 			return 0;
 	}
@@ -62,9 +96,51 @@ public class SimpleCQLLexer {
 	}
 	
 	List<String> getStatements() {
-        List<String> statements = new ArrayList<>();
-        StringBuilder statementUnderConstruction = new StringBuilder();
+		List<String> statements = new ArrayList<>();
+		iterator().forEachRemaining(statements::add);
+		return statements;
+	}
+
+	/* Lazily gives the statements, reading the lines as needed.
+	 */
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private String next = null;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null) {
+					next = nextStatement();
+				}
+				return next != null;
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				String statement = next;
+				next = null;
+				return statement;
+			}
+		};
+	}
+
+	public Stream<String> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	private String nextStatement() {
+		try {
+			return readStatement();
+		} catch (UncheckedIOException e) {
+			throw new ParseException(e.getCause());
+		}
+	}
 
+	private String readStatement() {
         char c;
     	while ((c = getChar()) != 0) {    		
     		switch (state) {
@@ -87,8 +163,9 @@ public class SimpleCQLLexer {
     				} else if (c == '\'') {
     					state = LexState.INSQUOTESTRING;
     				} else if (c == ';') {
-                        statements.add(statementUnderConstruction.toString().trim());
+                        String statement = statementUnderConstruction.toString().trim();
                         statementUnderConstruction.setLength(0);
+                        return statement;
         			}
     			}
     			break;
@@ -131,11 +208,12 @@ public class SimpleCQLLexer {
 
     	}
     	String tmp = statementUnderConstruction.toString().trim();
+    	statementUnderConstruction.setLength(0);
     	if (tmp.length() > 0) {
-            statements.add(tmp);
+            return tmp;
     	}
     	    	
-    	return statements;
+    	return null;
 	}
 	
 }
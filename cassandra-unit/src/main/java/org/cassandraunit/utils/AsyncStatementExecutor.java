@@ -0,0 +1,170 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.cassandraunit.exception.CassandraUnitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executes statements with {@link Session#executeAsync(Statement)}, keeping at most a bounded number of them in flight.
+ * The first failing statement, in dataset order, is reported once the pending statements have completed.
+ */
+public class AsyncStatementExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncStatementExecutor.class);
+
+    private final Session session;
+    private final int maxInFlightStatements;
+    private final Semaphore inFlight;
+
+    private int failedPosition = Integer.MAX_VALUE;
+    private int failedLastPosition;
+    private String failedStatement;
+    private Throwable failure;
+
+    public AsyncStatementExecutor(Session session, int maxInFlightStatements) {
+        if (maxInFlightStatements < 1) {
+            throw new IllegalArgumentException("maxInFlightStatements must be positive: " + maxInFlightStatements);
+        }
+        this.session = session;
+        this.maxInFlightStatements = maxInFlightStatements;
+        this.inFlight = new Semaphore(maxInFlightStatements);
+    }
+
+    /**
+     * Sends the statement without waiting for its result, blocking only while the in-flight window is full.
+     *
+     * @param position position of the statement in the dataset, starting at 1
+     */
+    public void submit(int position, String statement) {
+        submit(position, position, statement);
+    }
+
+    /**
+     * Sends a statement standing for several statements of the dataset, such as a batch.
+     *
+     * @param firstPosition position of the first grouped statement in the dataset, starting at 1
+     * @param lastPosition  position of the last grouped statement in the dataset
+     */
+    public void submit(int firstPosition, int lastPosition, String statement) {
+        submit(firstPosition, lastPosition, new SimpleStatement(statement), statement);
+    }
+
+    /**
+     * Sends a driver statement, such as a bound statement, standing for the given CQL text of the dataset.
+     */
+    public void submit(int firstPosition, int lastPosition, Statement statement, String cql) {
+        if (hasFailed()) {
+            awaitCompletion();
+        }
+        acquire();
+        log.debug("executing asynchronously : {}", cql);
+        ResultSetFuture future;
+        try {
+            future = session.executeAsync(statement);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            onFailure(firstPosition, lastPosition, cql, e);
+            awaitCompletion();
+            return;
+        }
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet result) {
+                inFlight.release();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                AsyncStatementExecutor.this.onFailure(firstPosition, lastPosition, cql, t);
+                inFlight.release();
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Executes the statement synchronously, after all the previously submitted statements have completed.
+     *
+     * @param position position of the statement in the dataset, starting at 1
+     */
+    public void execute(int position, String statement) {
+        execute(position, position, statement);
+    }
+
+    /**
+     * Executes synchronously a statement standing for several statements of the dataset, such as a batch.
+     */
+    public void execute(int firstPosition, int lastPosition, String statement) {
+        execute(firstPosition, lastPosition, new SimpleStatement(statement), statement);
+    }
+
+    /**
+     * Executes synchronously a driver statement standing for the given CQL text of the dataset.
+     */
+    public void execute(int firstPosition, int lastPosition, Statement statement, String cql) {
+        awaitCompletion();
+        log.debug("executing : {}", cql);
+        try {
+            session.execute(statement);
+        } catch (RuntimeException e) {
+            throw new CassandraUnitException(failureMessage(firstPosition, lastPosition, cql), e);
+        }
+    }
+
+    /**
+     * Waits for all the submitted statements, and throws a {@link CassandraUnitException} describing the first
+     * failing statement if any of them failed.
+     */
+    public void awaitCompletion() {
+        try {
+            inFlight.acquire(maxInFlightStatements);
+            inFlight.release(maxInFlightStatements);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CassandraUnitException("Interrupted while waiting for statements to complete", e);
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw new CassandraUnitException(failureMessage(failedPosition, failedLastPosition, failedStatement), failure);
+            }
+        }
+    }
+
+    private synchronized boolean hasFailed() {
+        return failure != null;
+    }
+
+    private synchronized void onFailure(int firstPosition, int lastPosition, String statement, Throwable t) {
+        if (firstPosition < failedPosition) {
+            failedPosition = firstPosition;
+            failedLastPosition = lastPosition;
+            failedStatement = statement;
+            failure = t;
+        }
+    }
+
+    private void acquire() {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CassandraUnitException("Interrupted while waiting for statements to complete", e);
+        }
+    }
+
+    private static String failureMessage(int firstPosition, int lastPosition, String statement) {
+        if (firstPosition == lastPosition) {
+            return "Failed to execute statement #" + firstPosition + " of the dataset: " + statement;
+        }
+        return "Failed to execute statements #" + firstPosition + " to #" + lastPosition + " of the dataset: " + statement;
+    }
+}
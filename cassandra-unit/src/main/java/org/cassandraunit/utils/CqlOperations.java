@@ -6,11 +6,23 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Locale;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 public class CqlOperations {
 
     private static final Logger log = LoggerFactory.getLogger(CqlOperations.class);
 
+    private static final Pattern DATA_MANIPULATION_STATEMENT = Pattern.compile(
+            "^(INSERT|UPDATE|DELETE|BEGIN\\s+((UNLOGGED|COUNTER)\\s+)?BATCH)\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Whether the statement only reads or writes rows (INSERT, UPDATE, DELETE or BATCH), as opposed to
+     * schema changes and USE statements which change the context of the following statements.
+     */
+    public static boolean isDataManipulation(String statement) {
+        return DATA_MANIPULATION_STATEMENT.matcher(statement.trim()).find();
+    }
+
     public static Consumer<String> execute(Session session) {
         return query -> {
             log.debug("executing : {}", query);
@@ -22,17 +34,30 @@ public class CqlOperations {
         return keyspace -> session.execute("USE " + keyspace);
     }
 
+    public static Consumer<String> use(Consumer<String> execute) {
+        return keyspace -> execute.accept("USE " + keyspace);
+    }
+
     public static Consumer<String> truncateTable(Session session) {
         return fullyQualifiedTable -> session.execute("truncate table " + fullyQualifiedTable);
     }
 
     public static Consumer<String> dropKeyspace(Session session) {
-        return keyspace -> execute(session).accept("DROP KEYSPACE IF EXISTS " + keyspace);
+        return dropKeyspace(execute(session));
+    }
+
+    public static Consumer<String> dropKeyspace(Consumer<String> execute) {
+        return keyspace -> execute.accept("DROP KEYSPACE IF EXISTS " + keyspace);
     }
 
     public static Consumer<String> createKeyspace(Session session) {
-        return keyspace -> execute(session).accept(String.format(Locale.ROOT,
+        return keyspace -> createKeyspace(execute(session),
+                session.getCluster().getMetadata().getAllHosts().iterator().next().getDatacenter()).accept(keyspace);
+    }
+
+    public static Consumer<String> createKeyspace(Consumer<String> execute, String datacenter) {
+        return keyspace -> execute.accept(String.format(Locale.ROOT,
             "CREATE KEYSPACE IF NOT EXISTS %s WITH replication={'class' : 'NetworkTopologyStrategy', '%s':'1'} AND durable_writes = false",
-            keyspace, session.getCluster().getMetadata().getAllHosts().iterator().next().getDatacenter()));
+            keyspace, datacenter));
     }
 }
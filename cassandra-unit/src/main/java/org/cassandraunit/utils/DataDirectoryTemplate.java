@@ -0,0 +1,176 @@
+package org.cassandraunit.utils;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Directories;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.utils.FBUtilities;
+import org.cassandraunit.exception.CassandraUnitException;
+import org.elasticsearch.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Data directory of a freshly bootstrapped node (system keyspaces and Elassandra metadata), kept between runs so that
+ * the next embedded nodes start from it instead of bootstrapping again. Templates are stored in the directory given by
+ * the {@value #TEMPLATE_DIR_PROPERTY} system property, one per Elassandra version and configuration.
+ */
+public class DataDirectoryTemplate {
+
+    private static final Logger log = LoggerFactory.getLogger(DataDirectoryTemplate.class);
+
+    public static final String TEMPLATE_DIR_PROPERTY = "cassandra-unit.template.dir";
+
+    private static final String TEMPLATE_SNAPSHOT_NAME = "cassandraunit-template";
+
+    private final Path directory;
+
+    DataDirectoryTemplate(Path templatesDirectory, String yaml) {
+        this.directory = templatesDirectory.resolve(key(Version.CURRENT + "-" + FBUtilities.getReleaseVersionString(), yaml));
+    }
+
+    /**
+     * @return the template of the configuration, or null if templates are not enabled
+     */
+    public static DataDirectoryTemplate forConfiguration(File yamlFile) throws IOException {
+        String templatesDirectory = System.getProperty(TEMPLATE_DIR_PROPERTY);
+        if (templatesDirectory == null) {
+            return null;
+        }
+        return new DataDirectoryTemplate(new File(templatesDirectory).toPath(),
+                new String(Files.readAllBytes(yamlFile.toPath()), StandardCharsets.UTF_8));
+    }
+
+    public boolean exists() {
+        return Files.isDirectory(directory);
+    }
+
+    /**
+     * Links, or copies when links are not supported, the files of the template in the empty data directory of the node.
+     * To be called before the node is activated.
+     *
+     * @return false if there is no template yet
+     */
+    public boolean restore() {
+        if (!exists()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        Path dataDirectory = new File(DatabaseDescriptor.getAllDataFileLocations()[0]).toPath();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                Path target = dataDirectory.resolve(directory.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.createLink(target, file);
+                } catch (IOException | UnsupportedOperationException e) {
+                    Files.copy(file, target);
+                }
+            }
+        } catch (IOException e) {
+            throw new CassandraUnitException("Failed to restore data directory template " + directory, e);
+        }
+        log.info("data directory restored from template {} in {} ms", directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return true;
+    }
+
+    /**
+     * Snapshots the keyspaces of the freshly started node, and keeps their SSTables as the template.
+     */
+    public void save() {
+        if (exists()) {
+            return;
+        }
+        // several forks may build the same template at the same time, only the first one is kept
+        Path building = directory.resolveSibling(directory.getFileName() + "-" + UUID.randomUUID());
+        try {
+            Files.createDirectories(building);
+            for (String keyspace : Schema.instance.getKeyspaces()) {
+                Keyspace ks = Keyspace.open(keyspace);
+                ks.snapshot(TEMPLATE_SNAPSHOT_NAME, null);
+                try {
+                    for (ColumnFamilyStore cfs : ks.getColumnFamilyStores()) {
+                        copySnapshot(cfs, building.resolve(keyspace));
+                    }
+                } finally {
+                    Keyspace.clearSnapshot(TEMPLATE_SNAPSHOT_NAME, keyspace);
+                }
+            }
+            Files.move(building, directory, StandardCopyOption.ATOMIC_MOVE);
+            log.info("data directory template saved in {}", directory);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            log.debug("data directory template {} saved concurrently", directory);
+        } catch (IOException e) {
+            log.warn("Failed to save data directory template " + directory, e);
+        } finally {
+            deleteRecursive(building);
+        }
+    }
+
+    private static void copySnapshot(ColumnFamilyStore cfs, Path keyspaceDirectory) throws IOException {
+        Map<Descriptor, Set<Component>> snapshot = cfs.getDirectories()
+                .sstableLister(Directories.OnTxnErr.IGNORE).snapshots(TEMPLATE_SNAPSHOT_NAME).list();
+        for (Map.Entry<Descriptor, Set<Component>> sstable : snapshot.entrySet()) {
+            Descriptor descriptor = sstable.getKey();
+            // snapshots are stored in <table directory>/snapshots/<name>
+            Path tableDirectory = keyspaceDirectory.resolve(descriptor.directory.getParentFile().getParentFile().getName());
+            Files.createDirectories(tableDirectory);
+            for (Component component : sstable.getValue()) {
+                File file = new File(descriptor.filenameFor(component));
+                Files.copy(file.toPath(), tableDirectory.resolve(file.getName()));
+            }
+        }
+    }
+
+    private static void deleteRecursive(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            List<Path> paths = files.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path file : paths) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete " + path, e);
+        }
+    }
+
+    /**
+     * Ports are left out of the key, so that configurations on random ports share their template.
+     */
+    static String key(String version, String yaml) {
+        String configuration = yaml.replaceAll("(?m)^(\\s*\\w*port\\w*\\s*:).*$", "$1");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            String hash = new BigInteger(1, digest.digest(configuration.getBytes(StandardCharsets.UTF_8))).toString(16);
+            return (version + "-" + hash).replaceAll("[^A-Za-z0-9._-]", "_");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
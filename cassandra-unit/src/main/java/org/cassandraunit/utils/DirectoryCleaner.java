@@ -0,0 +1,158 @@
+package org.cassandraunit.utils;
+
+import org.apache.cassandra.io.FSWriteError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes directory trees, such as the data directories of the embedded node, unlinking their files from several
+ * threads: the number of threads is given by the {@value #PARALLELISM_PROPERTY} system property. When the
+ * {@value #BACKGROUND_PROPERTY} system property is true, directories are renamed and deleted in the background instead,
+ * and the directories left over by a previous JVM are deleted as well.
+ */
+public class DirectoryCleaner {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryCleaner.class);
+
+    public static final String PARALLELISM_PROPERTY = "cassandra-unit.delete.parallelism";
+    public static final String BACKGROUND_PROPERTY = "cassandra-unit.delete.background";
+
+    private static final String DELETING_SUFFIX = ".deleting-";
+
+    private static final ForkJoinPool pool = new ForkJoinPool(Integer.getInteger(PARALLELISM_PROPERTY,
+            Math.max(2, Runtime.getRuntime().availableProcessors())));
+    /** directories being deleted in the background */
+    private static final Set<Path> deleting = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Deletes the directory, in the background if enabled by the {@value #BACKGROUND_PROPERTY} system property.
+     */
+    public static void clean(Path directory) {
+        if (Boolean.getBoolean(BACKGROUND_PROPERTY)) {
+            deleteInBackground(directory);
+        } else {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Deletes the directory and its content, the files being deleted concurrently.
+     */
+    public static void delete(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Path> files = new ArrayList<>();
+        List<Path> directories = new ArrayList<>();
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    files.add(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    if (e != null) {
+                        throw e;
+                    }
+                    // children first
+                    directories.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            pool.submit(() -> files.parallelStream().forEach(DirectoryCleaner::deleteFile)).get();
+        } catch (IOException e) {
+            throw new FSWriteError(e, directory.toFile());
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof FSWriteError ? (FSWriteError) e.getCause() : new FSWriteError(e.getCause(), directory.toFile());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FSWriteError(e, directory.toFile());
+        }
+        directories.forEach(DirectoryCleaner::deleteFile);
+        log.debug("deleted {} files of {} in {} ms", files.size(), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Moves the directory out of the way and deletes it in the background, so that a new directory can be created in
+     * its place right away. Falls back to a blocking deletion if the directory cannot be renamed.
+     */
+    public static void deleteInBackground(Path directory) {
+        Path absolute = directory.toAbsolutePath();
+        deleteLeftovers(absolute);
+        if (!Files.exists(absolute)) {
+            return;
+        }
+        Path renamed = absolute.resolveSibling(absolute.getFileName() + DELETING_SUFFIX + UUID.randomUUID());
+        try {
+            Files.move(absolute, renamed, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.debug("cannot rename {}, deleting it in place: {}", absolute, e.toString());
+            delete(absolute);
+            return;
+        }
+        submit(renamed);
+    }
+
+    private static void deleteLeftovers(Path directory) {
+        Path parent = directory.getParent();
+        if (parent == null || !Files.isDirectory(parent)) {
+            return;
+        }
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(parent,
+                directory.getFileName() + DELETING_SUFFIX + "*")) {
+            for (Path leftover : leftovers) {
+                submit(leftover);
+            }
+        } catch (IOException e) {
+            log.debug("cannot list the leftovers of {}: {}", directory, e.toString());
+        }
+    }
+
+    private static void submit(Path directory) {
+        if (!deleting.add(directory)) {
+            return;
+        }
+        pool.execute(() -> {
+            try {
+                delete(directory);
+            } catch (RuntimeException e) {
+                log.warn("Failed to delete " + directory + " in the background", e);
+            } finally {
+                deleting.remove(directory);
+            }
+        });
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.delete(file);
+        } catch (NoSuchFileException e) {
+            // deleted concurrently, e.g. by a background deletion of leftovers
+        } catch (IOException e) {
+            throw new FSWriteError(e, file.toFile());
+        }
+    }
+}
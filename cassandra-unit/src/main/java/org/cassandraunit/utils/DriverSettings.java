@@ -0,0 +1,348 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.NettyOptions;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.ProtocolOptions;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.SocketOptions;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.cassandraunit.exception.CassandraUnitException;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+
+/**
+ * Settings of the driver connecting to the embedded node, applied to the cluster shared by
+ * {@link EmbeddedCassandraServerHelper#getCluster()} with {@link EmbeddedCassandraServerHelper#useDriverSettings(DriverSettings)}:
+ *
+ * <pre>
+ * DriverSettings.builder()
+ *         .withConnectionsPerHost(4, 8)
+ *         .withMaxRequestsPerConnection(32768)
+ *         .withCompression(ProtocolOptions.Compression.LZ4)
+ *         .build();
+ * </pre>
+ * <p>
+ * A builder starts from the {@code cassandra-unit.driver.*} system properties, the settings left unset keep the
+ * defaults of the driver. LZ4 and Snappy compression need lz4-java or snappy-java on the classpath.
+ */
+public final class DriverSettings {
+
+    public static final String CORE_CONNECTIONS_PER_HOST_PROPERTY = "cassandra-unit.driver.coreConnectionsPerHost";
+    public static final String MAX_CONNECTIONS_PER_HOST_PROPERTY = "cassandra-unit.driver.maxConnectionsPerHost";
+    public static final String MAX_REQUESTS_PER_CONNECTION_PROPERTY = "cassandra-unit.driver.maxRequestsPerConnection";
+    /** none, lz4 or snappy */
+    public static final String COMPRESSION_PROPERTY = "cassandra-unit.driver.compression";
+    /** V3, V4... or the bare number */
+    public static final String PROTOCOL_VERSION_PROPERTY = "cassandra-unit.driver.protocolVersion";
+    public static final String CONNECT_TIMEOUT_PROPERTY = "cassandra-unit.driver.connectTimeoutMillis";
+    public static final String READ_TIMEOUT_PROPERTY = "cassandra-unit.driver.readTimeoutMillis";
+    public static final String TCP_NO_DELAY_PROPERTY = "cassandra-unit.driver.tcpNoDelay";
+    public static final String KEEP_ALIVE_PROPERTY = "cassandra-unit.driver.keepAlive";
+    /** threads of the netty event loop, 0 for twice the number of processors */
+    public static final String EVENT_LOOP_THREADS_PROPERTY = "cassandra-unit.driver.eventLoopThreads";
+
+    /** default of {@link SocketOptions}, not exposed by the driver */
+    private static final boolean DEFAULT_TCP_NO_DELAY = true;
+
+    private final Integer coreConnectionsPerHost;
+    private final Integer maxConnectionsPerHost;
+    private final Integer maxRequestsPerConnection;
+    private final ProtocolOptions.Compression compression;
+    private final ProtocolVersion protocolVersion;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final boolean tcpNoDelay;
+    private final Boolean keepAlive;
+    private final Integer eventLoopThreads;
+
+    private DriverSettings(Builder builder) {
+        this.coreConnectionsPerHost = builder.coreConnectionsPerHost;
+        this.maxConnectionsPerHost = builder.maxConnectionsPerHost;
+        this.maxRequestsPerConnection = builder.maxRequestsPerConnection;
+        this.compression = builder.compression;
+        this.protocolVersion = builder.protocolVersion;
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.readTimeoutMillis = builder.readTimeoutMillis;
+        this.tcpNoDelay = builder.tcpNoDelay;
+        this.keepAlive = builder.keepAlive;
+        this.eventLoopThreads = builder.eventLoopThreads;
+    }
+
+    /**
+     * @return a builder starting from the {@code cassandra-unit.driver.*} system properties
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the settings of the {@code cassandra-unit.driver.*} system properties
+     */
+    public static DriverSettings fromSystemProperties() {
+        return builder().build();
+    }
+
+    /**
+     * @return a builder starting from these settings
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * @return the protocol version, or null if it is negotiated with the embedded node
+     */
+    public ProtocolVersion getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    /**
+     * @return new socket options with these settings
+     */
+    public SocketOptions toSocketOptions() {
+        SocketOptions socketOptions = new SocketOptions()
+                .setConnectTimeoutMillis(connectTimeoutMillis)
+                .setReadTimeoutMillis(readTimeoutMillis)
+                .setTcpNoDelay(tcpNoDelay);
+        if (keepAlive != null) {
+            socketOptions.setKeepAlive(keepAlive);
+        }
+        return socketOptions;
+    }
+
+    /**
+     * Applies these settings to the builder of a cluster connecting to the embedded node, whose hosts are local.
+     */
+    public Cluster.Builder applyTo(Cluster.Builder builder) {
+        if (coreConnectionsPerHost != null || maxConnectionsPerHost != null || maxRequestsPerConnection != null) {
+            PoolingOptions poolingOptions = new PoolingOptions();
+            if (coreConnectionsPerHost != null || maxConnectionsPerHost != null) {
+                int core = coreConnectionsPerHost != null ? coreConnectionsPerHost : 1;
+                int max = maxConnectionsPerHost != null ? maxConnectionsPerHost : core;
+                poolingOptions.setConnectionsPerHost(HostDistance.LOCAL, core, max);
+            }
+            if (maxRequestsPerConnection != null) {
+                poolingOptions.setMaxRequestsPerConnection(HostDistance.LOCAL, maxRequestsPerConnection);
+            }
+            builder.withPoolingOptions(poolingOptions);
+        }
+        if (compression != null) {
+            builder.withCompression(compression);
+        }
+        if (protocolVersion != null) {
+            builder.withProtocolVersion(protocolVersion);
+        }
+        builder.withSocketOptions(toSocketOptions());
+        if (eventLoopThreads != null) {
+            builder.withNettyOptions(new EventLoopOptions(eventLoopThreads));
+        }
+        return builder;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DriverSettings that = (DriverSettings) o;
+        return connectTimeoutMillis == that.connectTimeoutMillis
+                && readTimeoutMillis == that.readTimeoutMillis
+                && Objects.equals(coreConnectionsPerHost, that.coreConnectionsPerHost)
+                && Objects.equals(maxConnectionsPerHost, that.maxConnectionsPerHost)
+                && Objects.equals(maxRequestsPerConnection, that.maxRequestsPerConnection)
+                && compression == that.compression
+                && protocolVersion == that.protocolVersion
+                && tcpNoDelay == that.tcpNoDelay
+                && Objects.equals(keepAlive, that.keepAlive)
+                && Objects.equals(eventLoopThreads, that.eventLoopThreads);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(coreConnectionsPerHost, maxConnectionsPerHost, maxRequestsPerConnection, compression,
+                protocolVersion, connectTimeoutMillis, readTimeoutMillis, tcpNoDelay, keepAlive, eventLoopThreads);
+    }
+
+    @Override
+    public String toString() {
+        return "DriverSettings{connectionsPerHost=" + coreConnectionsPerHost + "/" + maxConnectionsPerHost
+                + ", maxRequestsPerConnection=" + maxRequestsPerConnection + ", compression=" + compression
+                + ", protocolVersion=" + protocolVersion + ", connectTimeoutMillis=" + connectTimeoutMillis
+                + ", readTimeoutMillis=" + readTimeoutMillis + ", tcpNoDelay=" + tcpNoDelay + ", keepAlive=" + keepAlive
+                + ", eventLoopThreads=" + eventLoopThreads + "}";
+    }
+
+    public static class Builder {
+
+        private Integer coreConnectionsPerHost;
+        private Integer maxConnectionsPerHost;
+        private Integer maxRequestsPerConnection;
+        private ProtocolOptions.Compression compression;
+        private ProtocolVersion protocolVersion;
+        private int connectTimeoutMillis;
+        private int readTimeoutMillis;
+        private boolean tcpNoDelay;
+        private Boolean keepAlive;
+        private Integer eventLoopThreads;
+
+        private Builder() {
+            coreConnectionsPerHost = Integer.getInteger(CORE_CONNECTIONS_PER_HOST_PROPERTY);
+            maxConnectionsPerHost = Integer.getInteger(MAX_CONNECTIONS_PER_HOST_PROPERTY);
+            maxRequestsPerConnection = Integer.getInteger(MAX_REQUESTS_PER_CONNECTION_PROPERTY);
+            compression = property(COMPRESSION_PROPERTY,
+                    value -> ProtocolOptions.Compression.valueOf(value.toUpperCase(Locale.ROOT)));
+            protocolVersion = property(PROTOCOL_VERSION_PROPERTY, Builder::protocolVersion);
+            connectTimeoutMillis = Integer.getInteger(CONNECT_TIMEOUT_PROPERTY, SocketOptions.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+            readTimeoutMillis = Integer.getInteger(READ_TIMEOUT_PROPERTY, SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS);
+            Boolean tcpNoDelayProperty = property(TCP_NO_DELAY_PROPERTY, Boolean::valueOf);
+            tcpNoDelay = tcpNoDelayProperty != null ? tcpNoDelayProperty : DEFAULT_TCP_NO_DELAY;
+            keepAlive = property(KEEP_ALIVE_PROPERTY, Boolean::valueOf);
+            eventLoopThreads = Integer.getInteger(EVENT_LOOP_THREADS_PROPERTY);
+        }
+
+        private Builder(DriverSettings settings) {
+            coreConnectionsPerHost = settings.coreConnectionsPerHost;
+            maxConnectionsPerHost = settings.maxConnectionsPerHost;
+            maxRequestsPerConnection = settings.maxRequestsPerConnection;
+            compression = settings.compression;
+            protocolVersion = settings.protocolVersion;
+            connectTimeoutMillis = settings.connectTimeoutMillis;
+            readTimeoutMillis = settings.readTimeoutMillis;
+            tcpNoDelay = settings.tcpNoDelay;
+            keepAlive = settings.keepAlive;
+            eventLoopThreads = settings.eventLoopThreads;
+        }
+
+        /**
+         * Sets the number of connections opened to the embedded node, grown from core to max as requests queue up.
+         */
+        public Builder withConnectionsPerHost(int core, int max) {
+            this.coreConnectionsPerHost = core;
+            this.maxConnectionsPerHost = max;
+            return this;
+        }
+
+        /**
+         * Sets the number of requests in flight on each connection, up to 32768 with protocol V3 and later.
+         */
+        public Builder withMaxRequestsPerConnection(int maxRequestsPerConnection) {
+            this.maxRequestsPerConnection = maxRequestsPerConnection;
+            return this;
+        }
+
+        public Builder withCompression(ProtocolOptions.Compression compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Sets the protocol version rather than negotiating it with the embedded node.
+         */
+        public Builder withProtocolVersion(ProtocolVersion protocolVersion) {
+            this.protocolVersion = protocolVersion;
+            return this;
+        }
+
+        public Builder withConnectTimeoutMillis(int connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            return this;
+        }
+
+        public Builder withReadTimeoutMillis(int readTimeoutMillis) {
+            this.readTimeoutMillis = readTimeoutMillis;
+            return this;
+        }
+
+        public Builder withTcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+            return this;
+        }
+
+        public Builder withKeepAlive(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * Copies the timeouts, TCP_NODELAY and SO_KEEPALIVE of the socket options.
+         */
+        public Builder withSocketOptions(SocketOptions socketOptions) {
+            this.connectTimeoutMillis = socketOptions.getConnectTimeoutMillis();
+            this.readTimeoutMillis = socketOptions.getReadTimeoutMillis();
+            this.tcpNoDelay = socketOptions.getTcpNoDelay() != null ? socketOptions.getTcpNoDelay() : DEFAULT_TCP_NO_DELAY;
+            this.keepAlive = socketOptions.getKeepAlive();
+            return this;
+        }
+
+        /**
+         * Sets the number of threads of the netty event loop handling the connections, 0 for twice the number of
+         * processors.
+         */
+        public Builder withEventLoopThreads(int eventLoopThreads) {
+            this.eventLoopThreads = eventLoopThreads;
+            return this;
+        }
+
+        public DriverSettings build() {
+            return new DriverSettings(this);
+        }
+
+        private static <T> T property(String name, Function<String, T> parser) {
+            String value = System.getProperty(name);
+            if (value == null || value.trim().isEmpty()) {
+                return null;
+            }
+            try {
+                return parser.apply(value.trim());
+            } catch (IllegalArgumentException e) {
+                throw new CassandraUnitException("Invalid value " + value + " of " + name, e);
+            }
+        }
+
+        static ProtocolVersion protocolVersion(String value) {
+            String version = value.toUpperCase(Locale.ROOT);
+            return ProtocolVersion.valueOf(version.startsWith("V") ? version : "V" + version);
+        }
+    }
+
+    /**
+     * Netty options sizing the event loop, with the NIO transport whatever the platform.
+     */
+    private static class EventLoopOptions extends NettyOptions {
+
+        private final int threads;
+
+        EventLoopOptions(int threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public EventLoopGroup eventLoopGroup(ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends SocketChannel> channelClass() {
+            return NioSocketChannel.class;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Session;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.cassandraunit.exception.CassandraUnitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.cassandraunit.utils.EmbeddedCassandraServerHelper.CASSANDRA_RNDPORT_YML_FILE;
+import static org.cassandraunit.utils.EmbeddedCassandraServerHelper.DEFAULT_READINESS_ELASTICSEARCH_STATUS;
+import static org.cassandraunit.utils.EmbeddedCassandraServerHelper.DEFAULT_STARTUP_TIMEOUT;
+import static org.cassandraunit.utils.EmbeddedCassandraServerHelper.DEFAULT_TMP_DIR;
+import static org.cassandraunit.utils.EmbeddedCassandraServerHelper.READINESS_ELASTICSEARCH_STATUS_PROPERTY;
+
+/**
+ * Local cluster of embedded nodes, each one running in a child JVM of the {@link ForkedNodePool} and bound to its own
+ * loopback address: 127.0.0.1, 127.0.0.2 and so on. The nodes share the ports of the configuration, by default
+ * {@link EmbeddedCassandraServerHelper#CASSANDRA_RNDPORT_YML_FILE} whose ports are picked once for the whole cluster,
+ * keep their data in their own directory next to {@link EmbeddedCassandraServerHelper#DEFAULT_TMP_DIR}, and use the
+ * first node as seed. Loopback addresses other than 127.0.0.1 are available on Linux, but must be aliased on macOS
+ * ({@code sudo ifconfig lo0 alias 127.0.0.2 up}).
+ * <pre>
+ * EmbeddedCassandraCluster cluster = EmbeddedCassandraCluster.builder().withNodes(3).start();
+ * </pre>
+ */
+public class EmbeddedCassandraCluster {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedCassandraCluster.class);
+
+    public static final int DEFAULT_ELASTICSEARCH_HTTP_PORT = 9200;
+
+    private static final Pattern PORT = Pattern.compile("^([a-z_]+_port):\\s*([0-9]+)\\s*$", Pattern.MULTILINE);
+
+    private final List<ForkedNode> nodes;
+    private final List<String> nodeConfigurations;
+    private Cluster cluster;
+    private Session session;
+
+    private EmbeddedCassandraCluster(List<ForkedNode> nodes, List<String> nodeConfigurations) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.nodeConfigurations = nodeConfigurations;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<ForkedNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return a driver cluster using every node as contact point
+     */
+    public synchronized Cluster getCluster() {
+        if (cluster == null) {
+            cluster = Cluster.builder()
+                    .addContactPoints(nodes.stream().map(ForkedNode::getHost).toArray(String[]::new))
+                    .withPort(nodes.get(0).getNativeTransportPort())
+                    .withoutJMXReporting()
+                    .build();
+        }
+        return cluster;
+    }
+
+    public synchronized Session getSession() {
+        if (session == null) {
+            session = getCluster().connect();
+        }
+        return session;
+    }
+
+    /**
+     * Closes the driver objects, and stops the nodes.
+     */
+    public synchronized void stop() throws IOException {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+        if (cluster != null) {
+            cluster.close();
+            cluster = null;
+        }
+        for (String configuration : nodeConfigurations) {
+            ForkedNodePool.getInstance().stop(configuration);
+        }
+    }
+
+    /**
+     * @return the configuration of the node, bound to its loopback address, with its own directories
+     */
+    static String nodeConfiguration(String yaml, int node, String seed, String directory) {
+        String address = address(node);
+        String configuration = yaml
+                .replaceAll("(?m)^listen_address:.*$", "listen_address: " + address)
+                .replaceAll("(?m)^rpc_address:.*$", "rpc_address: " + address)
+                .replaceAll("(?m)^(\\s*- seeds:).*$", "$1 \"" + seed + "\"")
+                .replaceAll("(?m)^(\\s*(?:\\w+_directory:|-)\\s*)" + Pattern.quote(DEFAULT_TMP_DIR),
+                        "$1" + Matcher.quoteReplacement(directory));
+        if (!configuration.matches("(?s)(.*\\n)?auto_bootstrap:.*")) {
+            // the nodes start empty, there is nothing to stream
+            configuration += "\nauto_bootstrap: false\n";
+        }
+        return configuration;
+    }
+
+    static String address(int node) {
+        return "127.0.0." + node;
+    }
+
+    public static class Builder {
+
+        private int nodes = 3;
+        private String yamlFile = CASSANDRA_RNDPORT_YML_FILE;
+        private long timeout = DEFAULT_STARTUP_TIMEOUT;
+        private int elasticsearchHttpPort = DEFAULT_ELASTICSEARCH_HTTP_PORT;
+
+        private Builder() {
+        }
+
+        public Builder withNodes(int nodes) {
+            if (nodes < 1 || nodes > 254) {
+                throw new IllegalArgumentException("nodes must be between 1 and 254: " + nodes);
+            }
+            this.nodes = nodes;
+            return this;
+        }
+
+        /**
+         * @param yamlFile the class path resource of the configuration shared by the nodes, whose ports must differ
+         *                 from the ports of the embedded node of this JVM, if any: the first node binds 127.0.0.1 too
+         */
+        public Builder withYaml(String yamlFile) {
+            this.yamlFile = yamlFile;
+            return this;
+        }
+
+        /**
+         * @param timeout the startup timeout of each node, and of the cluster readiness, in milliseconds
+         */
+        public Builder withStartupTimeout(long timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder withElasticsearchHttpPort(int elasticsearchHttpPort) {
+            this.elasticsearchHttpPort = elasticsearchHttpPort;
+            return this;
+        }
+
+        /**
+         * Starts the nodes one after the other, and waits for every node to be up in the ring and in the Elasticsearch
+         * cluster, unless the {@value EmbeddedCassandraServerHelper#READINESS_ELASTICSEARCH_STATUS_PROPERTY} system
+         * property is none. The first node is then used by {@link EmbeddedCassandraServerHelper#getCluster()} and
+         * {@link EmbeddedCassandraServerHelper#getSession()}.
+         */
+        public EmbeddedCassandraCluster start() throws IOException {
+            for (int node = 1; node <= nodes; node++) {
+                checkAddress(address(node));
+            }
+            // the nodes of a cluster share their ports, zero ports are replaced once for all of them
+            String yaml = EmbeddedCassandraServerHelper.replaceZeroPorts(
+                    EmbeddedCassandraServerHelper.readConfigurationResource(yamlFile));
+            checkEmbeddedNodePorts(yaml);
+
+            List<ForkedNode> forkedNodes = new ArrayList<>();
+            List<String> nodeConfigurations = new ArrayList<>();
+            for (int node = 1; node <= nodes; node++) {
+                File directory = new File(DEFAULT_TMP_DIR + "-node" + node).getAbsoluteFile();
+                File configuration = new File(directory, "node" + node + ".yaml");
+                writeConfiguration(configuration,
+                        nodeConfiguration(yaml, node, address(1), directory.getPath()));
+                log.info("starting cluster node {} of {}", node, nodes);
+                forkedNodes.add(ForkedNodePool.getInstance().acquire(configuration.getPath(), timeout));
+                nodeConfigurations.add(configuration.getPath());
+            }
+
+            EmbeddedCassandraCluster cluster = new EmbeddedCassandraCluster(forkedNodes, nodeConfigurations);
+            long deadline = System.currentTimeMillis() + timeout;
+            cluster.awaitRing(deadline);
+            if (!"none".equalsIgnoreCase(System.getProperty(READINESS_ELASTICSEARCH_STATUS_PROPERTY,
+                    DEFAULT_READINESS_ELASTICSEARCH_STATUS))) {
+                cluster.awaitElasticsearch(elasticsearchHttpPort, deadline);
+            }
+            EmbeddedCassandraServerHelper.useForkedNode(forkedNodes.get(0));
+            return cluster;
+        }
+
+        private static void checkAddress(String address) throws IOException {
+            try (ServerSocket ignored = new ServerSocket(0, 1, InetAddress.getByName(address))) {
+                // available
+            } catch (IOException e) {
+                throw new CassandraUnitException("Loopback address " + address + " is not available, alias it to the "
+                        + "loopback interface", e);
+            }
+        }
+
+        /**
+         * Fails fast instead of timing out on the first node, which would not bind the ports of the embedded node.
+         */
+        private void checkEmbeddedNodePorts(String yaml) {
+            if (!DatabaseDescriptor.isDaemonInitialized()) {
+                return;
+            }
+            Map<String, Integer> embeddedPorts = new HashMap<>();
+            embeddedPorts.put("storage_port", DatabaseDescriptor.getStoragePort());
+            embeddedPorts.put("native_transport_port", DatabaseDescriptor.getNativeTransportPort());
+            embeddedPorts.put("rpc_port", DatabaseDescriptor.getRpcPort());
+            Matcher port = PORT.matcher(yaml);
+            while (port.find()) {
+                if (Integer.valueOf(port.group(2)).equals(embeddedPorts.get(port.group(1)))) {
+                    throw new CassandraUnitException("The " + port.group(1) + " " + port.group(2) + " of " + yamlFile
+                            + " is used by the embedded node of this JVM, start the cluster with another configuration, "
+                            + "such as " + CASSANDRA_RNDPORT_YML_FILE);
+                }
+            }
+        }
+
+        private static void writeConfiguration(File file, String configuration) throws IOException {
+            if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+                throw new IOException("Failed to mkdirs " + file.getParentFile());
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                writer.write(configuration);
+            }
+        }
+    }
+
+    private void awaitRing(long deadline) {
+        Set<Host> hosts = Collections.emptySet();
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                hosts = getCluster().getMetadata().getAllHosts();
+                if (hosts.size() == nodes.size()
+                        && hosts.stream().allMatch(host -> host.isUp() && !host.getTokens().isEmpty())) {
+                    log.info("ring of {} nodes ready", nodes.size());
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.debug("ring not ready yet: {}", e.getMessage());
+            }
+            sleep();
+        }
+        throw new CassandraUnitException("Ring not ready after the startup timeout, hosts up: " + hosts.stream()
+                .filter(Host::isUp).map(host -> host.getAddress().getHostAddress()).collect(Collectors.toList()));
+    }
+
+    private void awaitElasticsearch(int httpPort, long deadline) throws IOException {
+        URL health = new URL("http", nodes.get(0).getHost(), httpPort,
+                "/_cluster/health?wait_for_nodes=" + nodes.size() + "&timeout=1s");
+        while (System.currentTimeMillis() < deadline) {
+            HttpURLConnection connection = (HttpURLConnection) health.openConnection();
+            try {
+                connection.setConnectTimeout(1000);
+                connection.setReadTimeout(5000);
+                // 408 until every node joined the cluster
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+                    log.info("elasticsearch cluster of {} nodes ready", nodes.size());
+                    return;
+                }
+            } catch (IOException e) {
+                log.debug("elasticsearch cluster not ready yet: {}", e.getMessage());
+            } finally {
+                connection.disconnect();
+            }
+            sleep();
+        }
+        throw new CassandraUnitException("Elasticsearch cluster not ready after the startup timeout: " + health);
+    }
+
+    private static void sleep() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CassandraUnitException("Interrupted while waiting for the cluster", e);
+        }
+    }
+}
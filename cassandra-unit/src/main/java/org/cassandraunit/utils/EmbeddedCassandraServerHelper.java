@@ -13,34 +13,65 @@ import java.net.ServerSocket;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Directories;
+import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.db.commitlog.CommitLog;
+import org.apache.cassandra.db.lifecycle.LifecycleTransaction;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.service.CassandraDaemon;
 import org.apache.cassandra.service.ElassandraDaemon;
+import org.apache.cassandra.service.StorageProxy;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.thrift.transport.TTransportException;
+import org.cassandraunit.exception.CassandraUnitException;
 import org.elassandra.env.EnvironmentLoader;
+import org.elasticsearch.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.node.Node;
 import org.elasticsearch.plugins.Plugin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.reader.UnicodeReader;
 
 import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.QueryOptions;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * @author Jeremy Sevellec
@@ -55,6 +86,30 @@ public class EmbeddedCassandraServerHelper {
     public static final String DEFAULT_CASSANDRA_YML_FILE = "cu-cassandra.yaml";
     /** Configuration file which starts the embedded cassandra on a random free port */
     public static final String CASSANDRA_RNDPORT_YML_FILE = "cu-cassandra-rndport.yaml";
+    /**
+     * Configuration file with small thread pools, memtables and caches, for several embedded nodes per machine: the
+     * default configuration file with the {@link #LEAN_SETTINGS}
+     */
+    public static final String LEAN_CASSANDRA_YML_FILE = "cu-cassandra-lean.yaml";
+    private static final Map<String, String> LEAN_SETTINGS = new LinkedHashMap<>();
+    static {
+        LEAN_SETTINGS.put("max_hints_delivery_threads", "1");
+        LEAN_SETTINGS.put("key_cache_size_in_mb", "4");
+        LEAN_SETTINGS.put("counter_cache_size_in_mb", "0");
+        LEAN_SETTINGS.put("file_cache_size_in_mb", "32");
+        LEAN_SETTINGS.put("index_summary_capacity_in_mb", "4");
+        LEAN_SETTINGS.put("commitlog_segment_size_in_mb", "8");
+        LEAN_SETTINGS.put("concurrent_reads", "4");
+        LEAN_SETTINGS.put("concurrent_writes", "4");
+        LEAN_SETTINGS.put("concurrent_counter_writes", "2");
+        LEAN_SETTINGS.put("concurrent_materialized_view_writes", "2");
+        LEAN_SETTINGS.put("memtable_flush_writers", "1");
+        LEAN_SETTINGS.put("memtable_heap_space_in_mb", "32");
+        LEAN_SETTINGS.put("memtable_offheap_space_in_mb", "32");
+        LEAN_SETTINGS.put("native_transport_max_threads", "16");
+        LEAN_SETTINGS.put("rpc_max_threads", "16");
+        LEAN_SETTINGS.put("concurrent_compactors", "1");
+    }
     public static final String DEFAULT_LOG4J_CONFIG_FILE = "/log4j-embedded-cassandra.properties";
     private static final String INTERNAL_CASSANDRA_KEYSPACE = "system";
     private static final String INTERNAL_CASSANDRA_AUTH_KEYSPACE = "system_auth";
@@ -62,6 +117,31 @@ public class EmbeddedCassandraServerHelper {
     private static final String INTERNAL_CASSANDRA_SCHEMA_KEYSPACE = "system_schema";
     private static final String INTERNAL_CASSANDRA_TRACES_KEYSPACE = "system_traces";
 
+    private static final String KEYSPACE_SNAPSHOT_NAME = "cassandraunit";
+    /** Maximum number of tables truncated at the same time by {@link #cleanDataEmbeddedCassandra(String, String...)} */
+    public static final String CLEANUP_PARALLELISM_PROPERTY = "cassandra-unit.cleanup.parallelism";
+    public static final int DEFAULT_CLEANUP_PARALLELISM = 8;
+    /**
+     * true to attach to a node shared by the JVMs of the machine, started in a child JVM by the first one, instead of
+     * starting a node in this JVM
+     */
+    public static final String ATTACH_PROPERTY = "cassandra-unit.attach";
+    /**
+     * true to skip the commitlog for every keyspace, system keyspaces and keyspaces created with durable writes
+     * included, for throwaway test data
+     */
+    public static final String COMMITLOG_DISABLED_PROPERTY = "cassandra-unit.commitlog.disabled";
+    /** false to hand the node over before its schema agreed with the other nodes */
+    public static final String READINESS_SCHEMA_AGREEMENT_PROPERTY = "cassandra-unit.readiness.schemaAgreement";
+    /** Elasticsearch cluster health (green, yellow or red) awaited before handing the node over, or none */
+    public static final String READINESS_ELASTICSEARCH_STATUS_PROPERTY = "cassandra-unit.readiness.elasticsearchStatus";
+    public static final String DEFAULT_READINESS_ELASTICSEARCH_STATUS = "yellow";
+    /**
+     * true for a session recording the tables it writes to, so that the cleanups of a forked node only truncate those,
+     * and the cleanups of the embedded node truncate those and the tables holding data
+     */
+    public static final String WRITE_TRACKING_PROPERTY = "cassandra-unit.session.trackWrites";
+
     private static final Set<String> systemKeyspaces = new HashSet<>(Arrays.asList(INTERNAL_CASSANDRA_KEYSPACE,
             INTERNAL_CASSANDRA_AUTH_KEYSPACE, INTERNAL_CASSANDRA_DISTRIBUTED_KEYSPACE,
             INTERNAL_CASSANDRA_SCHEMA_KEYSPACE, INTERNAL_CASSANDRA_TRACES_KEYSPACE));
@@ -70,10 +150,25 @@ public class EmbeddedCassandraServerHelper {
         return keyspace -> !systemKeyspaces.contains(keyspace);
     }
 
+    private static CassandraDaemon cassandraDaemon = null;
+    /** null if the node was started without Elasticsearch */
     private static ElassandraDaemon elassandraDaemon = null;
+    private static volatile boolean stopped = false;
     private static String launchedYamlFile;
     private static com.datastax.driver.core.Cluster cluster;
     private static Session session;
+    /** clusters and sessions by driver settings, kept open for the sessions borrowed from them until the node stops */
+    private static final Map<DriverSettings, com.datastax.driver.core.Cluster> clusters = new HashMap<>();
+    private static final Map<DriverSettings, Session> sessions = new HashMap<>();
+    /** settings of the cluster, read from the system properties when it is first built */
+    private static DriverSettings driverSettings;
+    private static StartupPhases startupPhases;
+    private static ForkedNode forkedNode;
+    private static boolean forkedNodeStopped = false;
+    /** whether the forked node in use is shared with the other JVMs attached to it, see {@link #ATTACH_PROPERTY} */
+    private static boolean forkedNodeAttached = false;
+    /** ids of the tables of the snapshotted keyspaces */
+    private static final Map<String, Map<String, UUID>> keyspaceSnapshots = new ConcurrentHashMap<>();
 
     public static void startEmbeddedCassandra() throws TTransportException, IOException, InterruptedException, ConfigurationException {
         startEmbeddedCassandra(DEFAULT_STARTUP_TIMEOUT);
@@ -96,8 +191,33 @@ public class EmbeddedCassandraServerHelper {
     }
 
     public static void startEmbeddedCassandra(String yamlFile, String tmpDir, long timeout) throws IOException {
-        if (elassandraDaemon != null) {
-            /* nothing to do Cassandra is already started */
+        startEmbeddedCassandra(yamlFile, tmpDir, timeout, true);
+    }
+
+    /**
+     * Starts the embedded node on empty data directories. The node is started once per JVM: once started, this only
+     * starts again the transports of a node stopped by {@link #stopEmbeddedCassandra()}, on its existing data. A
+     * forked node in use, see {@link #startForkedCassandra(String)}, stands for the embedded node: it is only started
+     * again if it was stopped.
+     *
+     * @param elasticsearch false to start only Cassandra, without the Elasticsearch node, its plugins and its HTTP and
+     *                      transport listeners
+     */
+    public static synchronized void startEmbeddedCassandra(String yamlFile, String tmpDir, long timeout, boolean elasticsearch) throws IOException {
+        if (Boolean.getBoolean(ATTACH_PROPERTY)) {
+            attach(yamlFile, timeout, elasticsearch);
+            return;
+        }
+        if (forkedNode != null) {
+            if (forkedNodeStopped) {
+                restartEmbeddedCassandra();
+            }
+            return;
+        }
+        if (cassandraDaemon != null) {
+            /* nothing to do Cassandra is already started, or only needs its transports back */
+            checkElasticsearchForRestart(elasticsearch);
+            restartEmbeddedCassandra();
             return;
         }
 
@@ -105,10 +225,85 @@ public class EmbeddedCassandraServerHelper {
             yamlFile = "/" + yamlFile;
         }
 
+        StartupPhases phases = newStartupPhases();
+        phases.start("yaml");
         rmdir(tmpDir);
-        File file = copy(yamlFile, tmpDir).toFile();
-        readAndAdaptYaml(file);
-        startEmbeddedCassandra(file, tmpDir, timeout);
+        File file = copyConfiguration(yamlFile, tmpDir);
+        startEmbeddedCassandra(file, tmpDir, timeout, elasticsearch, false, phases);
+    }
+
+    /**
+     * Starts the embedded node on the data and the commitlog left in its directories by a previous JVM, where the other
+     * starts clean them: the writes the previous node did not flush are replayed from its commitlog. Used by the child
+     * JVM of a restarted {@link ForkedNode}.
+     *
+     * @param yamlFile the yaml file, or the yaml resource, of the node. A resource is copied to the temporary directory
+     *                 by the first start only, so that the node keeps the ports it was given.
+     */
+    static synchronized void startEmbeddedCassandraOnData(String yamlFile, String tmpDir, long timeout, boolean elasticsearch) throws IOException {
+        if (cassandraDaemon != null) {
+            throw new IllegalStateException("The embedded node is already started");
+        }
+        StartupPhases phases = newStartupPhases();
+        phases.start("yaml");
+        File file = new File(yamlFile);
+        if (!file.isFile()) {
+            String resource = StringUtils.startsWith(yamlFile, "/") ? yamlFile : "/" + yamlFile;
+            file = new File(tmpDir, resource.substring(resource.lastIndexOf("/") + 1));
+            if (!file.isFile()) {
+                file = copyConfiguration(resource, tmpDir);
+            }
+        }
+        startEmbeddedCassandra(file, tmpDir, timeout, elasticsearch, true, phases);
+    }
+
+    public static void startForkedCassandra(String yamlFile) {
+        startForkedCassandra(yamlFile, DEFAULT_STARTUP_TIMEOUT);
+    }
+
+    /**
+     * Uses the node of the {@link ForkedNodePool} running the configuration, starting it in a child JVM if needed.
+     * The contact point of the node is then used by {@link #getCluster()} and {@link #getSession()}, until another
+     * forked node is used.
+     *
+     * @param yamlFile the configuration of the node, a file or a class path resource
+     */
+    public static synchronized void startForkedCassandra(String yamlFile, long timeout) {
+        useForkedNode(ForkedNodePool.getInstance().acquire(yamlFile, timeout));
+    }
+
+    /**
+     * Attaches to the node of the configuration shared by the JVMs of the machine, starting it if needed, and isolates
+     * the keyspaces of the datasets of this JVM.
+     */
+    private static void attach(String yamlFile, long timeout, boolean elasticsearch) {
+        if (forkedNode != null && forkedNodeStopped) {
+            // on its data, as the node of this JVM would be
+            restartEmbeddedCassandra();
+        } else {
+            useForkedNode(ForkedNodePool.getInstance().acquire(yamlFile, timeout, elasticsearch));
+        }
+        forkedNodeAttached = true;
+        KeyspaceIsolation.enable();
+    }
+
+    /**
+     * @param node the forked node to use, or null to use the embedded node of this JVM again
+     */
+    static synchronized void useForkedNode(ForkedNode node) {
+        if (!Objects.equals(node, forkedNode)) {
+            closeDriver();
+            forkedNode = node;
+            forkedNodeStopped = false;
+            forkedNodeAttached = false;
+        }
+    }
+
+    /**
+     * @return the forked node in use, or null if the embedded node runs in this JVM
+     */
+    public static ForkedNode getForkedNode() {
+        return forkedNode;
     }
 
     public static void startEmbeddedCassandra(File file, long timeout) throws IOException {
@@ -122,11 +317,54 @@ public class EmbeddedCassandraServerHelper {
          * @throws ConfigurationException
          */
     public static void startEmbeddedCassandra(File file, String tmpDir, long timeout) throws IOException {
-        if (elassandraDaemon != null) {
-            /* nothing to do Cassandra is already started */
+        startEmbeddedCassandra(file, tmpDir, timeout, true);
+    }
+
+    /**
+     * Starts the embedded node on empty data directories. The node is started once per JVM: once started, this only
+     * starts again the transports of a node stopped by {@link #stopEmbeddedCassandra()}, on its existing data. A
+     * forked node in use, see {@link #startForkedCassandra(String)}, stands for the embedded node: it is only started
+     * again if it was stopped.
+     *
+     * @param elasticsearch false to start only Cassandra, without the Elasticsearch node, its plugins and its HTTP and
+     *                      transport listeners
+     */
+    public static synchronized void startEmbeddedCassandra(File file, String tmpDir, long timeout, boolean elasticsearch) throws IOException {
+        if (Boolean.getBoolean(ATTACH_PROPERTY)) {
+            attach(file.getAbsolutePath(), timeout, elasticsearch);
+            return;
+        }
+        if (forkedNode != null) {
+            if (forkedNodeStopped) {
+                restartEmbeddedCassandra();
+            }
+            return;
+        }
+        if (cassandraDaemon != null) {
+            /* nothing to do Cassandra is already started, or only needs its transports back */
+            checkElasticsearchForRestart(elasticsearch);
+            restartEmbeddedCassandra();
             return;
         }
+        startEmbeddedCassandra(file, tmpDir, timeout, elasticsearch, false, newStartupPhases());
+    }
+
+    /**
+     * @param keepData true to start on the data and the commitlog left in the directories of the node
+     */
+    private static void startEmbeddedCassandra(File file, String tmpDir, long timeout, boolean elasticsearch,
+                                               boolean keepData, StartupPhases phases) throws IOException {
+        startupPhases = phases;
+        try {
+            startDaemon(file, tmpDir, timeout, elasticsearch, keepData, phases);
+        } finally {
+            phases.finish();
+            phases.writeReport(new File(tmpDir));
+        }
+    }
 
+    private static void startDaemon(File file, String tmpDir, long timeout, boolean elasticsearch, boolean keepData,
+                                    StartupPhases phases) throws IOException {
         checkConfigNameForRestart(file.getAbsolutePath());
 
         log.debug("Starting elassandra...");
@@ -150,21 +388,57 @@ public class EmbeddedCassandraServerHelper {
             System.setProperty("log4j.configuration", "file:" + tmpDir + DEFAULT_LOG4J_CONFIG_FILE);
         }
 
+        phases.start("daemon initialization");
         DatabaseDescriptor.daemonInitialization();
+        if (TmpfsStorage.isEnabled()) {
+            TmpfsStorage.relocate(DatabaseDescriptor.getRawConfig());
+        }
+        if (Boolean.getBoolean(COMMITLOG_DISABLED_PROPERTY)) {
+            // the local system keyspaces are created from this default, the other keyspaces once the node started
+            KeyspaceParams.DEFAULT_LOCAL_DURABLE_WRITES = false;
+        }
 
-        cleanupAndLeaveDirs();
+        if (keepData) {
+            // the activation replays the commitlog segments left on disk
+            mkdirs();
+        } else {
+            phases.start("directory cleanup");
+            mkdirs();
+            cleanup();
+            mkdirs();
+            phases.start("commitlog reset");
+            CommitLog.instance.resetUnsafe(true); // cleanup screws w/ CommitLog, this brings it back to safe state
+        }
+        DataDirectoryTemplate template = keepData ? null : DataDirectoryTemplate.forConfiguration(file);
+        boolean startedFromTemplate = false;
+        if (template != null) {
+            phases.start("template restore");
+            startedFromTemplate = template.restore();
+        }
         final CountDownLatch startupLatch = new CountDownLatch(1);
         ExecutorService executor = Executors.newSingleThreadExecutor();
         executor.execute(() -> {
+            if (!elasticsearch) {
+                phases.start("cassandra activation");
+                cassandraDaemon = new CassandraDaemon(true);
+                cassandraDaemon.activate();
+                phases.finish();
+                startupLatch.countDown();
+                return;
+            }
+            phases.start("environment loading");
             EnvironmentLoader envloader = new EnvironmentLoader() {};
             elassandraDaemon = new ElassandraDaemon(envloader.loadEnvironment(true, file.getParent(), file.getParent()));
+            cassandraDaemon = elassandraDaemon;
             elassandraDaemon.register(new ElassandraDaemon.SetupListener() {
                 @Override
                 public void onComplete() {
+                    phases.finish();
                     startupLatch.countDown();
                 }
             });
 
+            phases.start("plugin loading");
             // load plugins
             List<Class<? extends Plugin>> classpathPlugins = new ArrayList<>();
             classpathPlugins.add(org.elasticsearch.transport.Netty4Plugin.class);
@@ -176,26 +450,86 @@ public class EmbeddedCassandraServerHelper {
                 // Enterprise plugin not in classpath
             }
 
+            phases.start("cassandra activation");
             elassandraDaemon.activate(false, true,
                 elassandraDaemon.getEnvironment().settings(),
                 elassandraDaemon.getEnvironment(),
                 classpathPlugins);
+            // ignored if the node completed its setup during the activation
+            phases.start("elasticsearch readiness");
         });
         try {
             if (!startupLatch.await(timeout, MILLISECONDS)) {
                 log.error("Cassandra daemon did not start after " + timeout + " ms. Consider increasing the timeout");
                 throw new AssertionError("Cassandra daemon did not start within timeout");
             }
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                if (session != null) session.close();
-                if (cluster != null) cluster.close();
-            }));
+            if (template != null && !startedFromTemplate) {
+                template.save();
+            }
+            if (Boolean.getBoolean(COMMITLOG_DISABLED_PROPERTY)) {
+                NonDurableKeyspaces.install();
+            }
+            phases.recordReadiness(readiness().await(timeout));
+            phases.recordFootprint();
+            Runtime.getRuntime().addShutdownHook(new Thread(EmbeddedCassandraServerHelper::closeDriver));
         } catch (InterruptedException e) {
             log.error("Interrupted waiting for Cassandra daemon to start:", e);
             throw new AssertionError(e);
         }
     }
 
+    /**
+     * @return the criteria the started node must meet before the helper returns
+     */
+    private static NodeReadiness readiness() {
+        NodeReadiness readiness = new NodeReadiness();
+        if (DatabaseDescriptor.startNativeTransport()) {
+            readiness.withCriterion("native transport", () -> NodeReadiness.isAccepting(
+                    DatabaseDescriptor.getRpcAddress().getHostAddress(), DatabaseDescriptor.getNativeTransportPort()));
+        }
+        if (!"false".equalsIgnoreCase(System.getProperty(READINESS_SCHEMA_AGREEMENT_PROPERTY))) {
+            readiness.withCriterion("schema agreement", () -> {
+                Map<String, List<String>> versions = new HashMap<>(StorageProxy.describeSchemaVersions());
+                versions.remove(StorageProxy.UNREACHABLE);
+                return versions.size() == 1;
+            });
+        }
+        String status = System.getProperty(READINESS_ELASTICSEARCH_STATUS_PROPERTY, DEFAULT_READINESS_ELASTICSEARCH_STATUS);
+        if (elassandraDaemon != null && !"none".equalsIgnoreCase(status)) {
+            ClusterHealthStatus target = ClusterHealthStatus.fromString(status);
+            readiness.withCriterion("elasticsearch " + target.name().toLowerCase(Locale.ROOT), () ->
+                    elassandraDaemon.node().client().admin().cluster().prepareHealth().get()
+                            .getStatus().value() <= target.value());
+        }
+        return readiness;
+    }
+
+    private static void checkElasticsearchForRestart(boolean elasticsearch) {
+        if (elasticsearch && elassandraDaemon == null) {
+            throw new UnsupportedOperationException("The embedded node was started without Elasticsearch, "
+                    + "we can't enable it in the same JVM instance");
+        }
+    }
+
+    /**
+     * @return whether the embedded node runs an Elasticsearch node
+     */
+    public static boolean isElasticsearchStarted() {
+        return elassandraDaemon != null;
+    }
+
+    /**
+     * @return the Elasticsearch node of the embedded node
+     * @throws IllegalStateException if the embedded node was started without Elasticsearch
+     */
+    public static Node getElasticsearchNode() {
+        if (elassandraDaemon == null) {
+            throw new IllegalStateException(cassandraDaemon == null ? "The embedded node is not started"
+                    : "The embedded node was started without Elasticsearch");
+        }
+        return elassandraDaemon.node();
+    }
+
     private static void checkConfigNameForRestart(String yamlFile) {
         boolean wasPreviouslyLaunched = launchedYamlFile != null;
         if (wasPreviouslyLaunched && !launchedYamlFile.equals(yamlFile)) {
@@ -205,63 +539,310 @@ public class EmbeddedCassandraServerHelper {
     }
 
     /**
-     * Now deprecated, previous version was not fully operating.
-     * This is now an empty method, will be pruned in future versions.
+     * Closes the driver cluster and session, and stops the native and thrift transports of the embedded node. The
+     * storage engine keeps running on its data and commitlog, since it cannot be initialized twice in a JVM, so that
+     * {@link #restartEmbeddedCassandra()} or the next start takes well under a second, but nothing is flushed.
+     * <p>
+     * A forked node in use, see {@link #getForkedNode()}, is stopped for good: its JVM drains the node, flushing its
+     * memtables, and exits. A node this JVM attached to, see {@link #ATTACH_PROPERTY}, is only released: it keeps
+     * running for the other JVMs.
      */
-    @Deprecated
-    public static void stopEmbeddedCassandra() {
-        log.warn("EmbeddedCassandraServerHelper.stopEmbeddedCassandra() is now deprecated, " +
-                "previous version was not fully operating");
-        elassandraDaemon.deactivate();
+    public static synchronized void stopEmbeddedCassandra() {
+        closeDriver();
+        if (forkedNode != null) {
+            if (forkedNodeStopped) {
+                return;
+            }
+            if (forkedNodeAttached) {
+                ForkedNodePool.getInstance().release(forkedNode);
+                forkedNodeStopped = true;
+                log.info("forked node {} released", forkedNode);
+                return;
+            }
+            long start = System.nanoTime();
+            ForkedNodePool.getInstance().stop(forkedNode, DEFAULT_STARTUP_TIMEOUT);
+            forkedNodeStopped = true;
+            log.info("forked node stopped in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return;
+        }
+        if (cassandraDaemon == null || stopped) {
+            return;
+        }
+        long start = System.nanoTime();
+        // CassandraDaemon.stop() destroys the native transport service, which could not be started again
+        cassandraDaemon.stopNativeTransport();
+        if (cassandraDaemon.thriftServer != null) {
+            cassandraDaemon.thriftServer.stop();
+        }
+        StorageService.instance.setRpcReady(false);
+        stopped = true;
+        log.info("embedded node stopped in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Starts again the transports of an embedded node stopped by {@link #stopEmbeddedCassandra()}, on its existing
+     * data. The driver cluster and session are created again on the next {@link #getCluster()} and
+     * {@link #getSession()}.
+     * <p>
+     * A forked node in use, see {@link #getForkedNode()}, once stopped, is started again in a new JVM on the data and
+     * the commitlog its previous JVM left: the writes it did not flush, if it was killed, are replayed. The node does
+     * not flush its schema tables, see {@code cassandra.unsafesystem}, and loads its schema before the replay: the
+     * writes to the tables created since its last flush, or its last stop, are not replayed. Its data is lost if its
+     * JVM was given the {@link TmpfsStorage} options, each JVM having its own directory there. A node this JVM
+     * attached to, released by the stop, is used again, and only restarted if it stopped meanwhile.
+     */
+    public static synchronized void restartEmbeddedCassandra() {
+        if (forkedNode != null) {
+            if (!forkedNodeStopped) {
+                return;
+            }
+            long start = System.nanoTime();
+            closeDriver();
+            forkedNode = forkedNodeAttached ?
+                    ForkedNodePool.getInstance().reacquire(forkedNode, DEFAULT_STARTUP_TIMEOUT) :
+                    ForkedNodePool.getInstance().restart(forkedNode, DEFAULT_STARTUP_TIMEOUT);
+            forkedNodeStopped = false;
+            log.info("forked node {} restarted in {} ms", forkedNode, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return;
+        }
+        if (cassandraDaemon == null) {
+            throw new IllegalStateException("The embedded node is not started");
+        }
+        if (!stopped) {
+            return;
+        }
+        long start = System.nanoTime();
+        cassandraDaemon.start();
+        stopped = false;
+        readiness().await(DEFAULT_STARTUP_TIMEOUT);
+        log.info("embedded node restarted in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @return whether the embedded node, or the forked node in use, was stopped by {@link #stopEmbeddedCassandra()}
+     */
+    public static boolean isStopped() {
+        return forkedNode != null ? forkedNodeStopped : stopped;
+    }
+
+    private static synchronized void closeDriver() {
+        sessions.values().forEach(Session::close);
+        sessions.clear();
+        session = null;
+        clusters.values().forEach(com.datastax.driver.core.Cluster::close);
+        clusters.clear();
+        cluster = null;
     }
 
     /**
      * drop all keyspaces (expect system)
      */
     public static void cleanEmbeddedCassandra() {
+        cleanEmbeddedCassandra(keyspace -> false);
+    }
+
+    /**
+     * drop all keyspaces (expect system) but the kept ones, such as pooled keyspaces
+     */
+    public static void cleanEmbeddedCassandra(Predicate<String> keptKeyspaces) {
         if (session != null) {
-            dropKeyspaces();
+            dropKeyspaces(keptKeyspaces);
         }
+        keyspaceSnapshots.keySet().removeIf(keptKeyspaces.negate());
     }
 
     /**
-     * truncate data in keyspace, except specified tables
+     * truncate data in keyspace, except specified tables. Tables of the embedded node which hold no data are skipped,
+     * the others are truncated concurrently.
      */
     public static void cleanDataEmbeddedCassandra(String keyspace, String... excludedTables) {
             if (session != null) {
-                cleanDataWithNativeDriver(keyspace, excludedTables);
+                cleanDataWithNativeDriver(KeyspaceIsolation.isolate(keyspace), excludedTables);
+            }
+    }
+
+    /**
+     * Flushes the tables of the keyspace and snapshots them with hard links, so that {@link #restoreKeyspace(String)}
+     * can bring the keyspace back to its current content. Replaces the previous snapshot of the keyspace.
+     */
+    public static void snapshotKeyspace(String keyspace) {
+        if (forkedNode != null) {
+            log.debug("keyspace {} of a forked node is not snapshotted", keyspace);
+            return;
+        }
+        Keyspace ks = Keyspace.open(keyspace);
+        Keyspace.clearSnapshot(KEYSPACE_SNAPSHOT_NAME, keyspace);
+        try {
+            ks.snapshot(KEYSPACE_SNAPSHOT_NAME, null);
+        } catch (IOException e) {
+            throw new CassandraUnitException("Failed to snapshot keyspace " + keyspace, e);
+        }
+        Map<String, UUID> tables = new HashMap<>();
+        for (ColumnFamilyStore cfs : ks.getColumnFamilyStores()) {
+            tables.put(cfs.name, cfs.metadata.cfId);
+        }
+        keyspaceSnapshots.put(keyspace, tables);
+        log.debug("snapshot of keyspace {} taken", keyspace);
+    }
+
+    public static boolean hasKeyspaceSnapshot(String keyspace) {
+        return keyspaceSnapshots.containsKey(keyspace);
+    }
+
+    /**
+     * Truncates the tables of the keyspace and loads back the SSTables of the snapshot taken by
+     * {@link #snapshotKeyspace(String)}. The time taken depends on the number of SSTables, not on the number of rows.
+     *
+     * @return false if the keyspace has no snapshot, or if its tables have changed since, in which case the keyspace
+     * is left untouched
+     */
+    public static boolean restoreKeyspace(String keyspace) {
+        Map<String, UUID> tables = keyspaceSnapshots.get(keyspace);
+        if (tables == null || forkedNode != null || Schema.instance.getKSMetaData(keyspace) == null) {
+            return false;
+        }
+        Collection<ColumnFamilyStore> stores = Keyspace.open(keyspace).getColumnFamilyStores();
+        if (stores.size() != tables.size()
+                || !stores.stream().allMatch(cfs -> cfs.metadata.cfId.equals(tables.get(cfs.name)))) {
+            log.debug("tables of keyspace {} changed since its snapshot", keyspace);
+            return false;
+        }
+        stores.forEach(ColumnFamilyStore::truncateBlocking);
+        // the SSTables obsoleted by the truncation are deleted in the background, they would be loaded back otherwise
+        LifecycleTransaction.waitForDeletions();
+        for (ColumnFamilyStore cfs : stores) {
+            linkSnapshot(cfs);
+            cfs.loadNewSSTables();
+        }
+        untrackKeyspace(keyspace);
+        log.debug("keyspace {} restored from its snapshot", keyspace);
+        return true;
+    }
+
+    /**
+     * Hard-links the SSTables of the snapshot in the data directories of the table, under generations which are not
+     * used yet, so that {@link ColumnFamilyStore#loadNewSSTables()} picks them up.
+     */
+    private static void linkSnapshot(ColumnFamilyStore cfs) {
+        Map<Descriptor, Set<Component>> snapshot = cfs.getDirectories()
+                .sstableLister(Directories.OnTxnErr.IGNORE).snapshots(KEYSPACE_SNAPSHOT_NAME).list();
+        int generation = cfs.getDirectories().sstableLister(Directories.OnTxnErr.IGNORE).list().keySet().stream()
+                .mapToInt(descriptor -> descriptor.generation)
+                .max().orElse(0);
+        generation = Math.max(generation, snapshot.keySet().stream()
+                .mapToInt(descriptor -> descriptor.generation)
+                .max().orElse(0));
+        for (Map.Entry<Descriptor, Set<Component>> sstable : snapshot.entrySet()) {
+            Descriptor source = sstable.getKey();
+            // snapshots are stored in <data directory>/snapshots/<name>
+            File dataDirectory = source.directory.getParentFile().getParentFile();
+            Descriptor target;
+            do {
+                target = new Descriptor(dataDirectory, source.ksname, source.cfname, ++generation, source.formatType);
+            } while (new File(target.filenameFor(Component.DATA)).exists());
+            for (Component component : sstable.getValue()) {
+                try {
+                    Files.createLink(Paths.get(target.filenameFor(component)), Paths.get(source.filenameFor(component)));
+                } catch (IOException e) {
+                    throw new FSWriteError(e, target.filenameFor(component));
+                }
             }
+        }
+    }
+
+    /**
+     * @return the phases of the last startup of the embedded node, also written as a JSON report in its tmp directory,
+     * or null if it was not started
+     */
+    public static StartupPhases getStartupPhases() {
+        return startupPhases;
+    }
+
+    private static StartupPhases newStartupPhases() {
+        return new StartupPhases(org.elasticsearch.Version.CURRENT + "/" + FBUtilities.getReleaseVersionString());
     }
 
     public static com.datastax.driver.core.Cluster getCluster() {
-        initCluster();
-        return cluster;
+        return initCluster();
     }
 
     public static Session getSession() {
-        initSession();
-        return session;
+        return initSession();
     }
 
-    private static synchronized void initCluster() {
+    /**
+     * Sets the driver settings of the shared cluster and session: {@link #getCluster()} and {@link #getSession()} then
+     * return the cluster and session of these settings, built on first use. The clusters of the former settings stay
+     * open, so that the sessions borrowed from them, e.g. by a test class running with other settings, remain usable
+     * until the node is stopped or another forked node is used.
+     */
+    public static synchronized void useDriverSettings(DriverSettings settings) {
+        if (!settings.equals(driverSettings)) {
+            driverSettings = settings;
+            cluster = clusters.get(settings);
+            session = sessions.get(settings);
+        }
+    }
+
+    /**
+     * @return the driver settings of the shared cluster, by default those of the {@code cassandra-unit.driver.*} system
+     * properties
+     */
+    public static synchronized DriverSettings getDriverSettings() {
+        if (driverSettings == null) {
+            driverSettings = DriverSettings.fromSystemProperties();
+        }
+        return driverSettings;
+    }
+
+    private static synchronized com.datastax.driver.core.Cluster initCluster() {
         if (cluster == null) {
             QueryOptions queryOptions = new QueryOptions();
             queryOptions.setRefreshSchemaIntervalMillis(0);
             queryOptions.setRefreshNodeIntervalMillis(0);
             queryOptions.setRefreshNodeListIntervalMillis(0);
-            cluster = com.datastax.driver.core.Cluster.builder()
+            DriverSettings settings = getDriverSettings();
+            if (!clusters.isEmpty()) {
+                log.debug("building another cluster with {}", settings);
+            }
+            cluster = settings.applyTo(com.datastax.driver.core.Cluster.builder())
                     .addContactPoints(EmbeddedCassandraServerHelper.getHost())
                     .withPort(EmbeddedCassandraServerHelper.getNativeTransportPort())
                     .withoutJMXReporting()
                     .withQueryOptions(queryOptions)
                     .build();
+            clusters.put(settings, cluster);
         }
+        return cluster;
     }
 
-    private static synchronized void initSession() {
+    private static synchronized Session initSession() {
         if (session == null) {
             initCluster();
-            session = cluster.connect();
+            session = Boolean.getBoolean(WRITE_TRACKING_PROPERTY) ? trackWrites(cluster.connect()) : cluster.connect();
+            sessions.put(getDriverSettings(), session);
+        }
+        return session;
+    }
+
+    /**
+     * @return the session recording its writes along with the sessions of the other driver settings
+     */
+    private static WriteTrackingSession trackWrites(Session connected) {
+        return sessions.values().stream()
+                .filter(WriteTrackingSession.class::isInstance)
+                .map(tracking -> ((WriteTrackingSession) tracking).sharingTracking(connected))
+                .findFirst()
+                .orElseGet(() -> new WriteTrackingSession(connected));
+    }
+
+    /**
+     * Tells the session, if it tracks writes, that the keyspace was written to without it, e.g. by an in-process load,
+     * so that its next cleanup checks all its tables.
+     */
+    public static void untrackKeyspace(String keyspace) {
+        if (session instanceof WriteTrackingSession && keyspace != null) {
+            ((WriteTrackingSession) session).untrack(keyspace);
         }
     }
 
@@ -271,6 +852,9 @@ public class EmbeddedCassandraServerHelper {
      * @return the cluster name
      */
     public static String getClusterName() {
+        if (forkedNode != null) {
+            return forkedNode.getClusterName();
+        }
         return DatabaseDescriptor.getClusterName();
     }
 
@@ -280,6 +864,9 @@ public class EmbeddedCassandraServerHelper {
      * @return the cassandra host
      */
     public static String getHost() {
+        if (forkedNode != null) {
+            return forkedNode.getHost();
+        }
         return DatabaseDescriptor.getRpcAddress().getHostName();
     }
 
@@ -289,6 +876,9 @@ public class EmbeddedCassandraServerHelper {
      * @return the cassandra RPC port
      */
     public static int getRpcPort() {
+        if (forkedNode != null) {
+            return forkedNode.getRpcPort();
+        }
         return DatabaseDescriptor.getRpcPort();
     }
 
@@ -298,50 +888,90 @@ public class EmbeddedCassandraServerHelper {
      * @return the cassandra native transport port.
      */
     public static int getNativeTransportPort() {
+        if (forkedNode != null) {
+            return forkedNode.getNativeTransportPort();
+        }
         return DatabaseDescriptor.getNativeTransportPort();
     }
 
     private static void cleanDataWithNativeDriver(String keyspace, String... excludedTables) {
+        long start = System.nanoTime();
         HashSet<String> excludedTableList = new HashSet<>(Arrays.asList(excludedTables));
-        cluster.getMetadata().getKeyspace(keyspace).getTables().stream()
+        List<String> tables = cluster.getMetadata().getKeyspace(keyspace).getTables().stream()
                 .map(table -> table.getName())
                 .filter(tableName -> !excludedTableList.contains(tableName))
-                .map(tableName -> keyspace + "." + tableName)
-                .forEach(CqlOperations.truncateTable(session));
+                .collect(Collectors.toList());
+        WriteTrackingSession tracking = session instanceof WriteTrackingSession ? (WriteTrackingSession) session : null;
+        Set<String> writtenTables = tracking == null ? null : tracking.getDirtyTables(keyspace);
+        List<String> dirtyTables = tables.stream()
+                .filter(tableName -> isDirtyTable(keyspace, tableName, writtenTables))
+                .collect(Collectors.toList());
+
+        // truncations flush and coordinate, run a bounded number of them at a time
+        Semaphore running = new Semaphore(Integer.getInteger(CLEANUP_PARALLELISM_PROPERTY, DEFAULT_CLEANUP_PARALLELISM));
+        List<ResultSetFuture> truncations = new ArrayList<>();
+        for (String tableName : dirtyTables) {
+            running.acquireUninterruptibly();
+            ResultSetFuture truncation = session.executeAsync(
+                    "truncate table " + Metadata.quoteIfNecessary(keyspace) + "." + Metadata.quoteIfNecessary(tableName));
+            truncation.addListener(running::release, MoreExecutors.directExecutor());
+            truncations.add(truncation);
+        }
+        truncations.forEach(ResultSetFuture::getUninterruptibly);
+        if (tracking != null) {
+            tracking.markClean(keyspace, excludedTables);
+        }
+        log.info("cleaned keyspace {} in {} ms: {} tables truncated, {} clean tables skipped", keyspace,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), dirtyTables.size(),
+                tables.size() - dirtyTables.size());
     }
 
-    private static void dropKeyspaces() {
-            dropKeyspacesWithNativeDriver();
+    /**
+     * @param writtenTables the tables written through the session since the last cleanup, or null if the keyspace is
+     *                      not tracked
+     */
+    private static boolean isDirtyTable(String keyspace, String table, Set<String> writtenTables) {
+        if (writtenTables != null && writtenTables.contains(table)) {
+            return true;
+        }
+        if (writtenTables != null && forkedNode != null) {
+            // the tables of a forked node can't be looked at, the tracking alone tells
+            return false;
+        }
+        // the embedded node may have been written to without the session
+        return !isEmptyTable(keyspace, table);
     }
 
-    private static void dropKeyspacesWithNativeDriver() {
+    /**
+     * @return true if the table of the embedded node has neither memtable data nor live SSTables
+     */
+    private static boolean isEmptyTable(String keyspace, String table) {
+        if (forkedNode != null) {
+            return false;
+        }
+        ColumnFamilyStore cfs = ColumnFamilyStore.getIfExists(keyspace, table);
+        return cfs != null && cfs.isEmpty();
+    }
+
+    private static void dropKeyspaces(Predicate<String> keptKeyspaces) {
+            dropKeyspacesWithNativeDriver(keptKeyspaces);
+    }
+
+    private static void dropKeyspacesWithNativeDriver(Predicate<String> keptKeyspaces) {
+        Consumer<String> dropKeyspace = CqlOperations.dropKeyspace(session);
         cluster.getMetadata().getKeyspaces().stream()
                 .map(KeyspaceMetadata::getName)
                 .filter(nonSystemKeyspaces())
-                .forEach(CqlOperations.dropKeyspace(session));
-    }
-
-    private static void deleteRecursive(File dir) {
-        if (!dir.exists()) {
-            return;
-        }
-        if (dir.isDirectory()) {
-            File[] children = dir.listFiles();
-            if (children != null) {
-                for (File child : children) {
-                    deleteRecursive(child);
-                }
-            }
-        }
-        try {
-            Files.delete(dir.toPath());
-        } catch (Throwable t) {
-            throw new FSWriteError(t, dir);
-        }
+                .filter(KeyspaceIsolation::isOwned)
+                .filter(keptKeyspaces.negate())
+                .forEach(keyspace -> {
+                    untrackKeyspace(keyspace);
+                    dropKeyspace.accept(keyspace);
+                });
     }
 
     private static void rmdir(String dir) {
-        deleteRecursive(new File(dir));
+        DirectoryCleaner.clean(Paths.get(dir));
     }
 
     /**
@@ -356,10 +986,37 @@ public class EmbeddedCassandraServerHelper {
         String fileName = resource.substring(resource.lastIndexOf("/") + 1);
         InputStream from = EmbeddedCassandraServerHelper.class.getResourceAsStream(resource);
         Path copyName = Paths.get(directory, fileName);
-        Files.copy(from, copyName);
+        // the directory is not cleaned when the node restarts on its data
+        Files.copy(from, copyName, StandardCopyOption.REPLACE_EXISTING);
         return copyName;
     }
 
+    /**
+     * Copies a configuration resource and its Elasticsearch settings to a directory, with unused ports in place of the
+     * ports set to zero.
+     */
+    private static File copyConfiguration(String yamlFile, String directory) throws IOException {
+        mkdir(directory);
+        File file = new File(directory, yamlFile.substring(yamlFile.lastIndexOf("/") + 1));
+        writeStringToYamlFile(file, readConfigurationResource(yamlFile));
+        copyElasticsearchSettings(yamlFile, directory);
+        readAndAdaptYaml(file);
+        return file;
+    }
+
+    /**
+     * Copies the Elasticsearch settings of a configuration resource, the {@code <name>-elasticsearch.yml} resource
+     * next to {@code <name>.yaml}, as the elasticsearch.yml file of the node.
+     */
+    private static void copyElasticsearchSettings(String yamlFile, String directory) throws IOException {
+        String resource = yamlFile.replaceFirst("\\.ya?ml$", "") + "-elasticsearch.yml";
+        try (InputStream from = EmbeddedCassandraServerHelper.class.getResourceAsStream(resource)) {
+            if (from != null) {
+                Files.copy(from, Paths.get(directory, "elasticsearch.yml"));
+            }
+        }
+    }
+
     /**
      * Creates a directory
      *
@@ -372,14 +1029,6 @@ public class EmbeddedCassandraServerHelper {
         }
     }
 
-    private static void cleanupAndLeaveDirs() throws IOException {
-        mkdirs();
-        cleanup();
-        mkdirs();
-        CommitLog commitLog = CommitLog.instance;
-        commitLog.resetUnsafe(true); // cleanup screws w/ CommitLog, this brings it back to safe state
-    }
-
     private static void cleanup() {
         // clean up commitlog and data directory which are stored as data directory/table/data files
         List<String> directories = new ArrayList<>(Arrays.asList(DatabaseDescriptor.getAllDataFileLocations()));
@@ -398,7 +1047,16 @@ public class EmbeddedCassandraServerHelper {
 
     private static void readAndAdaptYaml(File cassandraConfig) throws IOException {
         String yaml = readYamlFileToString(cassandraConfig);
+        String adapted = replaceZeroPorts(yaml);
+        if (!adapted.equals(yaml)) {
+            writeStringToYamlFile(cassandraConfig, adapted);
+        }
+    }
 
+    /**
+     * @return the configuration with unused local ports in place of the ports set to zero
+     */
+    static String replaceZeroPorts(String yaml) throws IOException {
         // read the ports and replace them if zero. dump back the changed string, preserving comments (thus no snakeyaml)
         Pattern portPattern = Pattern.compile("^([a-z_]+)_port:\\s*([0-9]+)\\s*$", Pattern.MULTILINE);
         Matcher portMatcher = portPattern.matcher(yaml);
@@ -418,15 +1076,53 @@ public class EmbeddedCassandraServerHelper {
             portMatcher.appendReplacement(sb, replacement);
         }
         portMatcher.appendTail(sb);
+        return replaced ? sb.toString() : yaml;
+    }
+
+    /**
+     * @param yamlFile a configuration resource, {@link #LEAN_CASSANDRA_YML_FILE} being derived from
+     *                 {@link #DEFAULT_CASSANDRA_YML_FILE}
+     * @return the content of the configuration
+     */
+    static String readConfigurationResource(String yamlFile) throws IOException {
+        String resource = StringUtils.startsWith(yamlFile, "/") ? yamlFile : "/" + yamlFile;
+        if (resource.equals("/" + LEAN_CASSANDRA_YML_FILE)) {
+            return overrideSettings(readConfigurationResource(DEFAULT_CASSANDRA_YML_FILE), LEAN_SETTINGS);
+        }
+        InputStream input = EmbeddedCassandraServerHelper.class.getResourceAsStream(resource);
+        if (input == null) {
+            throw new CassandraUnitException("Configuration not found: " + yamlFile);
+        }
+        return readYamlToString(input);
+    }
 
-        if (replaced) {
-            writeStringToYamlFile(cassandraConfig, sb.toString());
+    /**
+     * @return the configuration with the settings, in place of the settings it sets or comments out, or added
+     */
+    static String overrideSettings(String yaml, Map<String, String> settings) {
+        String overridden = yaml;
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            String line = Matcher.quoteReplacement(setting.getKey() + ": " + setting.getValue());
+            Matcher set = Pattern.compile("(?m)^" + Pattern.quote(setting.getKey()) + ":.*$").matcher(overridden);
+            Matcher commentedOut = Pattern.compile("(?m)^#\\s*" + Pattern.quote(setting.getKey()) + ":.*$").matcher(overridden);
+            if (set.find()) {
+                overridden = set.replaceFirst(line);
+            } else if (commentedOut.find()) {
+                overridden = commentedOut.replaceFirst(line);
+            } else {
+                overridden += (overridden.endsWith("\n") ? "" : "\n") + setting.getKey() + ": " + setting.getValue() + "\n";
+            }
         }
+        return overridden;
     }
 
     private static String readYamlFileToString(File yamlFile) throws IOException {
+        return readYamlToString(new FileInputStream(yamlFile));
+    }
+
+    private static String readYamlToString(InputStream input) throws IOException {
         // using UnicodeReader to read the correct encoding according to BOM
-        try (UnicodeReader reader = new UnicodeReader(new FileInputStream(yamlFile))) {
+        try (UnicodeReader reader = new UnicodeReader(input)) {
             StringBuilder sb = new StringBuilder();
             char[] cbuf = new char[1024];
 
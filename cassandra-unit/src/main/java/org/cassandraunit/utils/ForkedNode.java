@@ -0,0 +1,300 @@
+package org.cassandraunit.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An embedded node running in a child JVM, started by {@link ForkedNodePool}. The node publishes its contact point in
+ * a properties file of its directory once started. Each JVM using the node holds a lease file, renewed while it runs
+ * and deleted when it exits; the node stops itself once no lease has been held for the idle timeout, or once a stop
+ * file is created. The child JVM holds a lock on a file of the directory until it exits, so that the node can be
+ * started again on the data it left.
+ */
+public class ForkedNode {
+
+    private static final Logger log = LoggerFactory.getLogger(ForkedNode.class);
+
+    static final String NODE_FILE = "node.properties";
+    static final String LEASES_DIR = "leases";
+    static final String STOP_FILE = "stop";
+    static final String KILL_FILE = "kill";
+    static final String RUNNING_FILE = "running.lock";
+
+    /** lock of the node run by this JVM, kept reachable until the JVM exits */
+    private static FileLock running;
+
+    private final File directory;
+    private final String host;
+    private final int nativeTransportPort;
+    private final int rpcPort;
+    private final String clusterName;
+    private final String yamlFile;
+    private final boolean elasticsearch;
+    private final long idleTimeout;
+
+    ForkedNode(File directory, Properties properties) {
+        this.directory = directory;
+        this.host = properties.getProperty("host");
+        this.nativeTransportPort = Integer.parseInt(properties.getProperty("nativeTransportPort"));
+        this.rpcPort = Integer.parseInt(properties.getProperty("rpcPort"));
+        this.clusterName = properties.getProperty("clusterName");
+        this.yamlFile = properties.getProperty("yaml");
+        this.elasticsearch = Boolean.parseBoolean(properties.getProperty("elasticsearch", "true"));
+        this.idleTimeout = Long.parseLong(properties.getProperty("idleTimeout", String.valueOf(ForkedNodePool.DEFAULT_IDLE_TIMEOUT)));
+    }
+
+    /**
+     * @return the node published in the directory, or null if there is none
+     */
+    static ForkedNode read(File directory) throws IOException {
+        File nodeFile = new File(directory, NODE_FILE);
+        if (!nodeFile.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(nodeFile)) {
+            properties.load(input);
+        }
+        return new ForkedNode(directory, properties);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getNativeTransportPort() {
+        return nativeTransportPort;
+    }
+
+    public int getRpcPort() {
+        return rpcPort;
+    }
+
+    public String getClusterName() {
+        return clusterName;
+    }
+
+    /**
+     * @return the yaml file, or the yaml resource, the node was started from
+     */
+    public String getYamlFile() {
+        return yamlFile;
+    }
+
+    /**
+     * @return false if the node runs only Cassandra
+     */
+    public boolean isElasticsearch() {
+        return elasticsearch;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @return true if the native transport of the node accepts connections
+     */
+    public boolean isAlive() {
+        return NodeReadiness.isAccepting(host, nativeTransportPort);
+    }
+
+    /**
+     * Keeps the node running for another idle timeout, on behalf of this JVM.
+     */
+    public void renewLease() {
+        renewLease(directory);
+    }
+
+    /**
+     * Stops using the node: it keeps running for the idle timeout once no JVM holds a lease.
+     */
+    public void releaseLease() {
+        leaseFile(directory).delete();
+    }
+
+    static void renewLease(File directory) {
+        File lease = leaseFile(directory);
+        try {
+            lease.getParentFile().mkdirs();
+            if (!lease.createNewFile()) {
+                lease.setLastModified(System.currentTimeMillis());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to renew the lease of " + directory, e);
+        }
+    }
+
+    /**
+     * Each JVM using the node holds its own lease, so that the node counts its users.
+     */
+    static File leaseFile(File directory) {
+        String jvm = ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(new File(directory, LEASES_DIR), jvm);
+    }
+
+    /**
+     * Deletes the leases not renewed for the idle timeout, left by JVMs which did not exit cleanly.
+     *
+     * @return the number of leases still held
+     */
+    static int countLeases(File directory, long idleTimeout) {
+        File[] leases = new File(directory, LEASES_DIR).listFiles();
+        if (leases == null) {
+            return 0;
+        }
+        int held = 0;
+        for (File lease : leases) {
+            if (System.currentTimeMillis() - lease.lastModified() < idleTimeout) {
+                held++;
+            } else {
+                lease.delete();
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Asks the node to stop.
+     */
+    public void stop() throws IOException {
+        new File(directory, STOP_FILE).createNewFile();
+    }
+
+    /**
+     * Asks the node to halt without flushing its memtables, as a crash would: the writes which were not flushed are
+     * only in its commitlog.
+     */
+    public void kill() throws IOException {
+        new File(directory, KILL_FILE).createNewFile();
+    }
+
+    /**
+     * Waits for the child JVM of the node to exit.
+     *
+     * @return false if it still runs after the timeout
+     */
+    public boolean awaitExit(long timeout) throws IOException {
+        long deadline = System.currentTimeMillis() + timeout;
+        try (FileChannel channel = new RandomAccessFile(new File(directory, RUNNING_FILE), "rw").getChannel()) {
+            do {
+                FileLock lock = channel.tryLock();
+                if (lock != null) {
+                    lock.release();
+                    return true;
+                }
+                TimeUnit.MILLISECONDS.sleep(200);
+            } while (System.currentTimeMillis() < deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ForkedNode that = (ForkedNode) o;
+        return nativeTransportPort == that.nativeTransportPort && host.equals(that.host) && directory.equals(that.directory);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(directory, host, nativeTransportPort);
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + nativeTransportPort + " (" + directory + ")";
+    }
+
+    /**
+     * Entry point of the child JVM, run in the node directory.
+     *
+     * @param args the yaml file, or the yaml resource, of the node, its startup timeout in milliseconds, its idle
+     *             timeout in milliseconds, whether it runs Elasticsearch and whether it starts on the data and
+     *             commitlog left by its previous run
+     */
+    public static void main(String[] args) throws Exception {
+        String yaml = args[0];
+        long timeout = Long.parseLong(args[1]);
+        long idleTimeout = Long.parseLong(args[2]);
+        boolean elasticsearch = args.length < 4 || Boolean.parseBoolean(args[3]);
+        boolean keepData = args.length >= 5 && Boolean.parseBoolean(args[4]);
+        File directory = new File(".").getCanonicalFile();
+
+        // held until this JVM exits, however it exits, released by the OS
+        running = new RandomAccessFile(new File(directory, RUNNING_FILE), "rw").getChannel().lock();
+
+        // this JVM runs the node, it does not attach to it
+        System.clearProperty(EmbeddedCassandraServerHelper.ATTACH_PROPERTY);
+        if (keepData) {
+            EmbeddedCassandraServerHelper.startEmbeddedCassandraOnData(yaml, EmbeddedCassandraServerHelper.DEFAULT_TMP_DIR, timeout, elasticsearch);
+        } else if (new File(yaml).isFile()) {
+            EmbeddedCassandraServerHelper.startEmbeddedCassandra(new File(yaml), EmbeddedCassandraServerHelper.DEFAULT_TMP_DIR, timeout, elasticsearch);
+        } else {
+            EmbeddedCassandraServerHelper.startEmbeddedCassandra(yaml, EmbeddedCassandraServerHelper.DEFAULT_TMP_DIR, timeout, elasticsearch);
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("host", EmbeddedCassandraServerHelper.getHost());
+        properties.setProperty("nativeTransportPort", String.valueOf(EmbeddedCassandraServerHelper.getNativeTransportPort()));
+        properties.setProperty("rpcPort", String.valueOf(EmbeddedCassandraServerHelper.getRpcPort()));
+        properties.setProperty("clusterName", EmbeddedCassandraServerHelper.getClusterName());
+        properties.setProperty("yaml", yaml);
+        properties.setProperty("elasticsearch", String.valueOf(elasticsearch));
+        properties.setProperty("idleTimeout", String.valueOf(idleTimeout));
+        File publishing = new File(directory, NODE_FILE + ".tmp");
+        try (OutputStream output = new FileOutputStream(publishing)) {
+            properties.store(output, "embedded node started from " + yaml);
+        }
+        Files.move(publishing.toPath(), new File(directory, NODE_FILE).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        log.info("forked node {} started", directory);
+
+        File stop = new File(directory, STOP_FILE);
+        File kill = new File(directory, KILL_FILE);
+        long idleSince = System.currentTimeMillis();
+        while (!stop.exists() && System.currentTimeMillis() - idleSince < idleTimeout) {
+            if (kill.exists()) {
+                log.info("forked node {} killed", directory);
+                new File(directory, NODE_FILE).delete();
+                kill.delete();
+                // skips the shutdown hooks, the node does not drain
+                Runtime.getRuntime().halt(1);
+            }
+            if (countLeases(directory, idleTimeout) > 0) {
+                idleSince = System.currentTimeMillis();
+            }
+            TimeUnit.SECONDS.sleep(1);
+        }
+        log.info("forked node {} stopping", directory);
+        new File(directory, NODE_FILE).delete();
+        stop.delete();
+        System.exit(0);
+    }
+}
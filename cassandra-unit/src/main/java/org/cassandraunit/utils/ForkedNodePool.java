@@ -0,0 +1,321 @@
+package org.cassandraunit.utils;
+
+import org.cassandraunit.exception.CassandraUnitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Embedded nodes running in child JVMs, one per configuration, so that a build can use several configurations without
+ * restarting nodes between test classes. Nodes are kept warm in the directory given by the {@value #POOL_DIR_PROPERTY}
+ * system property, and shared by every JVM using that directory, such as surefire forks and the next builds: each
+ * JVM holds a lease on the nodes it uses until it exits, and a node stops once no JVM has held a lease for the idle
+ * timeout, set in milliseconds with the {@value #IDLE_TIMEOUT_PROPERTY} system property. The child JVMs get the
+ * class path of this JVM, and the options of the {@value #JVM_ARGS_PROPERTY} system property.
+ */
+public class ForkedNodePool {
+
+    private static final Logger log = LoggerFactory.getLogger(ForkedNodePool.class);
+
+    public static final String POOL_DIR_PROPERTY = "cassandra-unit.pool.dir";
+    public static final String IDLE_TIMEOUT_PROPERTY = "cassandra-unit.pool.idleTimeout";
+    public static final String JVM_ARGS_PROPERTY = "cassandra-unit.pool.jvmArgs";
+
+    public static final String DEFAULT_POOL_DIR = "target/cassandra-unit-pool";
+    public static final long DEFAULT_IDLE_TIMEOUT = 60_000L;
+
+    private static final String CASSANDRA_ONLY_SUFFIX = "-cassandra";
+
+    private static final ForkedNodePool instance = new ForkedNodePool(
+            new File(System.getProperty(POOL_DIR_PROPERTY, DEFAULT_POOL_DIR)),
+            Long.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT));
+
+    private final File directory;
+    private final long idleTimeout;
+    private final Map<String, ForkedNode> nodes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService leaseRenewer;
+
+    public ForkedNodePool(File directory, long idleTimeout) {
+        this.directory = directory.getAbsoluteFile();
+        this.idleTimeout = idleTimeout;
+    }
+
+    public static ForkedNodePool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the node running the configuration, starting it if no JVM of the build did.
+     *
+     * @param yamlFile the configuration of the node, a file or a class path resource
+     * @param timeout  the startup timeout of the node in milliseconds
+     */
+    public ForkedNode acquire(String yamlFile, long timeout) {
+        return acquire(yamlFile, timeout, true);
+    }
+
+    /**
+     * @param elasticsearch false for a node running only Cassandra
+     */
+    public ForkedNode acquire(String yamlFile, long timeout, boolean elasticsearch) {
+        String key = key(yamlFile, readConfiguration(yamlFile)) + (elasticsearch ? "" : CASSANDRA_ONLY_SUFFIX);
+        ForkedNode node = nodes.get(key);
+        if (node != null && node.isAlive()) {
+            return node;
+        }
+        File nodeDirectory = new File(directory, key);
+        try {
+            Files.createDirectories(nodeDirectory.toPath());
+            // the lock makes the JVMs of the build start each node once
+            try (FileChannel channel = new RandomAccessFile(new File(directory, key + ".lock"), "rw").getChannel();
+                 FileLock ignored = channel.lock()) {
+                node = ForkedNode.read(nodeDirectory);
+                if (node != null && node.isAlive()) {
+                    log.info("reusing forked node {}", node);
+                } else {
+                    node = launch(yamlFile, nodeDirectory, timeout, elasticsearch, idleTimeout, false);
+                }
+            }
+        } catch (IOException e) {
+            throw new CassandraUnitException("Failed to start forked node " + key, e);
+        }
+        node.renewLease();
+        nodes.put(key, node);
+        scheduleLeaseRenewal();
+        return node;
+    }
+
+    /**
+     * Stops the node running the configuration, if any.
+     */
+    public void stop(String yamlFile) throws IOException {
+        String key = key(yamlFile, readConfiguration(yamlFile));
+        for (ForkedNode node : Arrays.asList(nodes.remove(key), nodes.remove(key + CASSANDRA_ONLY_SUFFIX))) {
+            if (node != null) {
+                node.stop();
+            }
+        }
+    }
+
+    /**
+     * Stops the node, waiting for its JVM to exit: the node drains, flushing its memtables.
+     */
+    public void stop(ForkedNode node, long timeout) {
+        nodes.values().remove(node);
+        try {
+            node.stop();
+            if (!node.awaitExit(timeout)) {
+                throw new CassandraUnitException("Forked node " + node + " still running after " + timeout + " ms");
+            }
+        } catch (IOException e) {
+            throw new CassandraUnitException("Failed to stop forked node " + node, e);
+        }
+        node.releaseLease();
+    }
+
+    /**
+     * Stops using the node without stopping it: it keeps running for the other JVMs holding a lease, then for the idle
+     * timeout.
+     */
+    public void release(ForkedNode node) {
+        nodes.values().remove(node);
+        node.releaseLease();
+    }
+
+    /**
+     * Uses again a node released by this JVM, restarting it on its data if it stopped in the meantime.
+     *
+     * @return the node, or the restarted node
+     */
+    public ForkedNode reacquire(ForkedNode node, long timeout) {
+        // keeps the node from stopping once idle
+        node.renewLease();
+        if (!node.isAlive()) {
+            return restart(node, timeout);
+        }
+        nodes.put(node.getDirectory().getName(), node);
+        scheduleLeaseRenewal();
+        return node;
+    }
+
+    /**
+     * Stops the node if it still runs, then starts it again in the same directory, on the data and the commitlog it
+     * left: the writes it did not flush, if it was killed, are replayed from its commitlog. The node keeps the ports
+     * it was given, unless they were set in its configuration file.
+     *
+     * @return the restarted node
+     * @throws CassandraUnitException if the node still runs for other JVMs holding a lease
+     */
+    public ForkedNode restart(ForkedNode node, long timeout) {
+        if (node.getYamlFile() == null) {
+            throw new CassandraUnitException("Forked node " + node + " does not tell its configuration, it can't be restarted");
+        }
+        File nodeDirectory = node.getDirectory();
+        String key = nodeDirectory.getName();
+        ForkedNode restarted;
+        try (FileChannel channel = new RandomAccessFile(new File(nodeDirectory.getParentFile(), key + ".lock"), "rw").getChannel();
+             FileLock ignored = channel.lock()) {
+            if (node.isAlive()) {
+                // the lease of this JVM, if any, was not deleted as expired
+                int otherLeases = ForkedNode.countLeases(nodeDirectory, node.getIdleTimeout())
+                        - (ForkedNode.leaseFile(nodeDirectory).exists() ? 1 : 0);
+                if (otherLeases > 0) {
+                    throw new CassandraUnitException("Forked node " + node + " is used by " + otherLeases
+                            + " other JVMs, it can't be restarted");
+                }
+            }
+            node.stop();
+            if (!node.awaitExit(timeout)) {
+                throw new CassandraUnitException("Forked node " + node + " still running after " + timeout + " ms");
+            }
+            restarted = launch(node.getYamlFile(), nodeDirectory, timeout, node.isElasticsearch(), node.getIdleTimeout(), true);
+        } catch (IOException e) {
+            throw new CassandraUnitException("Failed to restart forked node " + node, e);
+        }
+        restarted.renewLease();
+        nodes.put(key, restarted);
+        scheduleLeaseRenewal();
+        return restarted;
+    }
+
+    /**
+     * Stops the nodes used by this JVM.
+     */
+    public void stopAll() throws IOException {
+        for (String key : new ArrayList<>(nodes.keySet())) {
+            ForkedNode node = nodes.remove(key);
+            if (node != null) {
+                node.stop();
+            }
+        }
+    }
+
+    /**
+     * @param keepData true to start the node on the data and the commitlog left in its directory
+     */
+    private static ForkedNode launch(String yamlFile, File nodeDirectory, long timeout, boolean elasticsearch,
+                                     long idleTimeout, boolean keepData) throws IOException {
+        new File(nodeDirectory, ForkedNode.NODE_FILE).delete();
+        new File(nodeDirectory, ForkedNode.STOP_FILE).delete();
+        new File(nodeDirectory, ForkedNode.KILL_FILE).delete();
+        // the node must not stop before we get its lease
+        ForkedNode.renewLease(nodeDirectory);
+
+        File yaml = new File(yamlFile);
+        List<String> command = javaCommand(ForkedNode.class, yaml.isFile() ? yaml.getAbsolutePath() : yamlFile,
+                String.valueOf(timeout), String.valueOf(idleTimeout), String.valueOf(elasticsearch), String.valueOf(keepData));
+
+        File logFile = new File(nodeDirectory.getParentFile(), nodeDirectory.getName() + ".log");
+        log.info("{} forked node in {}", keepData ? "restarting" : "starting", nodeDirectory);
+        Process process = new ProcessBuilder(command)
+                .directory(nodeDirectory)
+                .redirectErrorStream(true)
+                // the log of a restarted node follows the log of its previous run
+                .redirectOutput(keepData ? ProcessBuilder.Redirect.appendTo(logFile) : ProcessBuilder.Redirect.to(logFile))
+                .start();
+
+        long deadline = System.currentTimeMillis() + timeout;
+        while (System.currentTimeMillis() < deadline) {
+            ForkedNode node = ForkedNode.read(nodeDirectory);
+            if (node != null) {
+                log.info("forked node {} started", node);
+                return node;
+            }
+            if (!process.isAlive()) {
+                throw new CassandraUnitException("Forked node exited with code " + process.exitValue()
+                        + ", see " + logFile);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+                throw new CassandraUnitException("Interrupted while starting forked node", e);
+            }
+        }
+        process.destroy();
+        throw new CassandraUnitException("Forked node not started after " + timeout + " ms, see "
+                + logFile);
+    }
+
+    /**
+     * @return the command running the main class in a child JVM, with the class path of this JVM and the options of
+     * the {@value #JVM_ARGS_PROPERTY} system property
+     */
+    static List<String> javaCommand(Class<?> mainClass, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.add("-cp");
+        command.add(Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .map(entry -> new File(entry).getAbsolutePath())
+                .collect(Collectors.joining(File.pathSeparator)));
+        String jvmArgs = System.getProperty(JVM_ARGS_PROPERTY, "").trim();
+        if (!jvmArgs.isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+        }
+        command.add(mainClass.getName());
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    private synchronized void scheduleLeaseRenewal() {
+        if (leaseRenewer != null) {
+            return;
+        }
+        leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cassandra-unit-lease-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeout / 4, 100);
+        leaseRenewer.scheduleAtFixedRate(() -> nodes.values().forEach(ForkedNode::renewLease),
+                period, period, TimeUnit.MILLISECONDS);
+        // the nodes outlive this JVM for the idle timeout, ready for the next forks and builds
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> nodes.values().forEach(ForkedNode::releaseLease)));
+    }
+
+    private static String readConfiguration(String yamlFile) {
+        try {
+            File file = new File(yamlFile);
+            if (file.isFile()) {
+                return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            }
+            return EmbeddedCassandraServerHelper.readConfigurationResource(yamlFile);
+        } catch (IOException e) {
+            throw new CassandraUnitException("Failed to read configuration " + yamlFile, e);
+        }
+    }
+
+    /**
+     * @return the name of the node directory of the configuration
+     */
+    static String key(String yamlFile, String configuration) {
+        String name = new File(yamlFile).getName().replaceAll("\\.ya?ml$", "").replaceAll("[^A-Za-z0-9._-]", "_");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            String hash = String.format("%032x", new BigInteger(1, digest.digest(configuration.getBytes(StandardCharsets.UTF_8))));
+            return name + "-" + hash.substring(0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.cassandraunit.utils;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.cql3.QueryProcessor;
+import org.apache.cassandra.cql3.statements.BatchStatement;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
+import org.apache.cassandra.cql3.statements.ParsedStatement;
+import org.apache.cassandra.cql3.statements.TruncateStatement;
+import org.apache.cassandra.cql3.statements.UseStatement;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.service.ClientState;
+import org.apache.cassandra.service.QueryState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Executes statements with the query handler of the embedded node running in this JVM, without going through the
+ * driver and the native protocol. Like a driver session, it keeps the keyspace set by USE statements.
+ */
+public class InProcessQueryExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(InProcessQueryExecutor.class);
+
+    private final QueryState queryState = QueryState.forInternalCalls();
+    private final Set<String> writtenKeyspaces = new LinkedHashSet<>();
+
+    public InProcessQueryExecutor() {
+        if (!DatabaseDescriptor.isDaemonInitialized()) {
+            throw new IllegalStateException("In-process execution requires the embedded Cassandra to run in this JVM");
+        }
+    }
+
+    public void execute(String statement) {
+        log.debug("executing in process : {}", statement);
+        QueryOptions options = QueryOptions.forInternalCalls(ConsistencyLevel.ONE, Collections.emptyList());
+        ParsedStatement.Prepared prepared = QueryProcessor.getStatement(statement, queryState.getClientState());
+        if (prepared.statement instanceof UseStatement) {
+            // the access check of USE statements requires a logged in user, which internal calls do not have
+            prepared.statement.executeInternal(queryState, options);
+            return;
+        }
+        // recorded before the execution, a failed write may still have been applied
+        if (prepared.statement instanceof ModificationStatement) {
+            writtenKeyspaces.add(((ModificationStatement) prepared.statement).keyspace());
+        } else if (prepared.statement instanceof BatchStatement) {
+            ((BatchStatement) prepared.statement).getStatements()
+                    .forEach(modification -> writtenKeyspaces.add(modification.keyspace()));
+        } else if (prepared.statement instanceof TruncateStatement) {
+            writtenKeyspaces.add(((TruncateStatement) prepared.statement).keyspace());
+        }
+        ClientState.getCQLQueryHandler().process(statement, queryState, options, Collections.emptyMap(), System.nanoTime());
+    }
+
+    /**
+     * @return the keyspace set by the last USE statement, or null
+     */
+    public String getLoggedKeyspace() {
+        return queryState.getClientState().getRawKeyspace();
+    }
+
+    /**
+     * @return the keyspaces of the tables written to or truncated by the statements executed so far
+     */
+    public Set<String> getWrittenKeyspaces() {
+        return Collections.unmodifiableSet(writtenKeyspaces);
+    }
+
+    public String getDatacenter() {
+        return DatabaseDescriptor.getLocalDataCenter();
+    }
+
+    /**
+     * @return the partition key columns of the table, or null if it does not exist or is a counter table
+     */
+    public List<String> partitionKey(String keyspace, String table) {
+        CFMetaData metadata = Schema.instance.getCFMetaData(keyspace, table);
+        if (metadata == null || metadata.isCounter()) {
+            return null;
+        }
+        return metadata.partitionKeyColumns().stream()
+                .map(column -> column.name.toString())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,77 @@
+package org.cassandraunit.utils;
+
+import org.cassandraunit.dataset.cql.CQLModification;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Suffixes the keyspaces of datasets with an identifier of this JVM, so that JVMs sharing a node, such as surefire
+ * forks attached to the same node, do not load and drop each other's keyspaces. The identifier is given by the
+ * {@value #FORK_ID_PROPERTY} system property, e.g. {@code ${surefire.forkNumber}}, and defaults to the process id.
+ * <p>
+ * The statements of a dataset naming its keyspace, in a qualified name such as {@code mykeyspace.mytable} or in a
+ * {@code USE} or keyspace statement, are given the keyspace of this JVM, see {@link #isolate(String, String)}. The
+ * other keyspaces a dataset names, and the statements the tests run themselves, still reach the keyspaces shared by
+ * the JVMs: tests should name their tables unqualified, within the keyspace of their dataset.
+ */
+public class KeyspaceIsolation {
+
+    public static final String FORK_ID_PROPERTY = "cassandra-unit.forkId";
+
+    private static volatile String suffix = null;
+
+    /**
+     * Isolates the keyspaces of the datasets loaded from now on.
+     */
+    public static void enable() {
+        String forkId = System.getProperty(FORK_ID_PROPERTY, ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+        suffix = "_" + forkId.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "_");
+    }
+
+    public static void disable() {
+        suffix = null;
+    }
+
+    public static boolean isEnabled() {
+        return suffix != null;
+    }
+
+    /**
+     * @return the keyspace of this JVM for the keyspace of a dataset, which may be quoted
+     */
+    public static String isolate(String keyspace) {
+        String currentSuffix = suffix;
+        if (currentSuffix == null || keyspace == null) {
+            return keyspace;
+        }
+        boolean quoted = keyspace.length() > 1 && keyspace.startsWith("\"") && keyspace.endsWith("\"");
+        String name = quoted ? keyspace.substring(1, keyspace.length() - 1) : keyspace;
+        if (name.toLowerCase(Locale.ROOT).endsWith(currentSuffix)) {
+            return keyspace;
+        }
+        return quoted ? "\"" + name + currentSuffix + "\"" : name + currentSuffix;
+    }
+
+    /**
+     * @param statement a statement of the dataset of the keyspace
+     * @param keyspace  the keyspace of the dataset, which may be quoted
+     * @return the statement, naming the keyspace of this JVM where it names the keyspace of the dataset
+     */
+    public static String isolate(String statement, String keyspace) {
+        String isolated = isolate(keyspace);
+        if (isolated == null || isolated.equals(keyspace)) {
+            return statement;
+        }
+        return CQLModification.renameKeyspace(statement, CQLModification.internalName(keyspace), isolated);
+    }
+
+    /**
+     * @param keyspace the internal name of a keyspace
+     * @return whether the keyspace belongs to this JVM, always true if keyspaces are not isolated
+     */
+    public static boolean isOwned(String keyspace) {
+        String currentSuffix = suffix;
+        return currentSuffix == null || keyspace.toLowerCase(Locale.ROOT).endsWith(currentSuffix);
+    }
+}
@@ -0,0 +1,107 @@
+package org.cassandraunit.utils;
+
+import org.cassandraunit.exception.CassandraUnitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Criteria an embedded node must meet before it is handed to the tests, such as its native transport accepting
+ * connections. The criteria are polled one after the other, with an exponential backoff, until they are met or the
+ * timeout expires; the time taken by each one is reported.
+ */
+public class NodeReadiness {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeReadiness.class);
+
+    static final long INITIAL_BACKOFF_MILLIS = 10;
+    static final long MAX_BACKOFF_MILLIS = 500;
+
+    private final List<Criterion> criteria = new ArrayList<>();
+
+    /**
+     * @param check returns true once the criterion is met, failures are retried like unmet criteria
+     */
+    public NodeReadiness withCriterion(String name, Callable<Boolean> check) {
+        criteria.add(new Criterion(name, check));
+        return this;
+    }
+
+    /**
+     * Waits for every criterion in turn.
+     *
+     * @return the time in milliseconds taken by each criterion, in order
+     * @throws CassandraUnitException if a criterion is not met within the timeout
+     */
+    public Map<String, Long> await(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Map<String, Long> durations = new LinkedHashMap<>();
+        for (Criterion criterion : criteria) {
+            long start = System.nanoTime();
+            long backoff = INITIAL_BACKOFF_MILLIS;
+            Exception lastFailure = null;
+            while (true) {
+                try {
+                    if (criterion.check.call()) {
+                        break;
+                    }
+                    lastFailure = null;
+                } catch (Exception e) {
+                    lastFailure = e;
+                }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    throw new CassandraUnitException("Embedded node not ready after " + timeoutMillis + " ms, waiting for "
+                            + criterion.name, lastFailure);
+                }
+                sleep(Math.min(backoff, remaining));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+            durations.put(criterion.name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        log.info("embedded node ready: {}", durations);
+        return Collections.unmodifiableMap(durations);
+    }
+
+    /**
+     * @return true if the port of the host accepts connections
+     */
+    public static boolean isAccepting(String host, int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), 1000);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CassandraUnitException("Interrupted while waiting for the embedded node", e);
+        }
+    }
+
+    private static class Criterion {
+
+        private final String name;
+        private final Callable<Boolean> check;
+
+        Criterion(String name, Callable<Boolean> check) {
+            this.name = name;
+            this.check = check;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.cassandraunit.utils;
+
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.schema.KeyspaceMetadata;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.service.MigrationListener;
+import org.apache.cassandra.service.MigrationManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns durable writes off for every keyspace of the embedded node, whatever their {@code durable_writes} option, so
+ * that no mutation goes through the commitlog. Enabled by the
+ * {@value EmbeddedCassandraServerHelper#COMMITLOG_DISABLED_PROPERTY} system property.
+ * <p>
+ * Only the schema held in memory by the node is changed: the schema tables, and so {@code DESCRIBE} and the driver
+ * metadata, still show the option of each keyspace. Keyspaces created or altered later are changed as soon as the
+ * schema change is applied, before the statement completes.
+ */
+class NonDurableKeyspaces extends MigrationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(NonDurableKeyspaces.class);
+
+    private static boolean installed = false;
+
+    private NonDurableKeyspaces() {
+    }
+
+    /**
+     * Turns durable writes off for the keyspaces of the started node, and for the keyspaces created or altered from now.
+     */
+    static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        Schema.instance.getNonSystemKeyspaces().forEach(NonDurableKeyspaces::disableDurableWrites);
+        MigrationManager.instance.register(new NonDurableKeyspaces());
+        installed = true;
+    }
+
+    @Override
+    public void onCreateKeyspace(String keyspace) {
+        disableDurableWrites(keyspace);
+    }
+
+    @Override
+    public void onUpdateKeyspace(String keyspace) {
+        disableDurableWrites(keyspace);
+    }
+
+    private static void disableDurableWrites(String keyspace) {
+        KeyspaceMetadata metadata = Schema.instance.getKSMetaData(keyspace);
+        if (metadata != null && metadata.params.durableWrites) {
+            // updates the keyspace instance as well, which tells each mutation whether to write the commitlog
+            Schema.instance.setKeyspaceMetadata(nonDurable(metadata));
+            log.debug("durable writes of keyspace {} turned off", keyspace);
+        }
+    }
+
+    static KeyspaceMetadata nonDurable(KeyspaceMetadata metadata) {
+        return metadata.withSwapped(new KeyspaceParams(false, metadata.params.replication));
+    }
+}
@@ -0,0 +1,190 @@
+package org.cassandraunit.utils;
+
+import org.cassandraunit.dataset.cql.CQLModification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Groups consecutive INSERT and UPDATE statements writing to the same partition, so that they can be sent as one
+ * single-partition UNLOGGED batch. Other statements are left alone and break the runs.
+ */
+public class PartitionBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionBatcher.class);
+
+    /**
+     * Cassandra's default batch_size_warn_threshold_in_kb, kept by the bundled configurations.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE_IN_BYTES = 5 * 1024;
+
+    private static final Pattern USE_STATEMENT = Pattern.compile("^USE\\s+(\"(?:[^\"]|\"\")+\"|\\w+)\\s*;?$",
+            Pattern.CASE_INSENSITIVE);
+
+    private final BiFunction<String, String, List<String>> partitionKeyResolver;
+    private final int maxBatchSizeInBytes;
+    private final Map<String, Optional<List<String>>> partitionKeys = new HashMap<>();
+    private String keyspace;
+
+    private long batches = 0;
+    private long batchedStatements = 0;
+    private long singleStatements = 0;
+    private long batchedBytes = 0;
+
+    /**
+     * @param keyspace             keyspace of the unqualified tables until a USE statement is met, may be null
+     * @param partitionKeyResolver gives the partition key columns of a (keyspace, table), or null if the writes to this
+     *                             table should not be batched (unknown or counter table)
+     * @param maxBatchSizeInBytes  maximum size of the statements grouped in a batch, in UTF-8 bytes
+     */
+    public PartitionBatcher(String keyspace, BiFunction<String, String, List<String>> partitionKeyResolver,
+                            int maxBatchSizeInBytes) {
+        this.keyspace = keyspace;
+        this.partitionKeyResolver = partitionKeyResolver;
+        this.maxBatchSizeInBytes = maxBatchSizeInBytes;
+    }
+
+    /**
+     * Lazily groups the statements. The partition key of a statement is only resolved when the group before it has been
+     * returned, so the statements of each group must be executed before asking for the next one.
+     */
+    public Iterator<List<String>> group(Iterator<String> statements) {
+        return new Iterator<List<String>>() {
+
+            private String pending;
+
+            @Override
+            public boolean hasNext() {
+                return pending != null || statements.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String first = pending != null ? pending : statements.next();
+                pending = null;
+                List<String> group = new ArrayList<>();
+                group.add(first);
+                List<String> partition = partitionOf(first);
+                if (partition != null) {
+                    int size = sizeInBytes(first);
+                    while (statements.hasNext()) {
+                        String candidate = statements.next();
+                        int candidateSize = sizeInBytes(candidate);
+                        if (size + candidateSize > maxBatchSizeInBytes || !partition.equals(partitionOf(candidate))) {
+                            pending = candidate;
+                            break;
+                        }
+                        group.add(candidate);
+                        size += candidateSize;
+                    }
+                    if (group.size() > 1) {
+                        batchedBytes += size;
+                    }
+                }
+                if (group.size() > 1) {
+                    batches++;
+                    batchedStatements += group.size();
+                } else {
+                    singleStatements++;
+                }
+                return group;
+            }
+        };
+    }
+
+    /**
+     * Writes the statements of a group as a single statement.
+     */
+    public static String toStatement(List<String> group) {
+        if (group.size() == 1) {
+            return group.get(0);
+        }
+        StringBuilder batch = new StringBuilder("BEGIN UNLOGGED BATCH ");
+        for (String statement : group) {
+            batch.append(statement);
+            if (!statement.endsWith(";")) {
+                batch.append(';');
+            }
+            batch.append(' ');
+        }
+        return batch.append("APPLY BATCH;").toString();
+    }
+
+    public void logStatistics() {
+        log.info("{} statements sent in {} unlogged batches (average {} bytes per batch), {} statements sent alone",
+                batchedStatements, batches, batches == 0 ? 0 : batchedBytes / batches, singleStatements);
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getBatchedStatements() {
+        return batchedStatements;
+    }
+
+    public long getSingleStatements() {
+        return singleStatements;
+    }
+
+    /**
+     * Size of the statement as sent to the node, which checks the batch size in bytes rather than in characters.
+     */
+    private static int sizeInBytes(String statement) {
+        return statement.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * @return the keyspace, table and partition key terms written by the statement, or null if it cannot be batched
+     */
+    private List<String> partitionOf(String statement) {
+        if (!CqlOperations.isDataManipulation(statement)) {
+            Matcher use = USE_STATEMENT.matcher(statement.trim());
+            if (use.matches()) {
+                keyspace = CQLModification.internalName(use.group(1));
+            }
+            // schema may have changed
+            partitionKeys.clear();
+            return null;
+        }
+        CQLModification modification = CQLModification.parse(statement);
+        if (modification == null) {
+            return null;
+        }
+        String statementKeyspace = modification.getKeyspace() != null ?
+                CQLModification.internalName(modification.getKeyspace()) : keyspace;
+        if (statementKeyspace == null) {
+            return null;
+        }
+        String table = CQLModification.internalName(modification.getTable());
+        Optional<List<String>> partitionKey = partitionKeys.computeIfAbsent(statementKeyspace + "." + table,
+                key -> Optional.ofNullable(partitionKeyResolver.apply(statementKeyspace, table)));
+        if (!partitionKey.isPresent()) {
+            return null;
+        }
+        List<String> partition = new ArrayList<>(Arrays.asList(statementKeyspace, table));
+        for (String column : partitionKey.get()) {
+            String term = modification.getTerm(column);
+            if (term == null) {
+                return null;
+            }
+            partition.add(term);
+        }
+        return partition;
+    }
+}
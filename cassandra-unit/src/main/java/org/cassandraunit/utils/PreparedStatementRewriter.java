@@ -0,0 +1,195 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TypeCodec;
+import org.cassandraunit.dataset.cql.CQLModification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites INSERT statements with literal values as bound statements: literals are replaced by bind markers, each
+ * distinct statement shape is prepared once through a bounded LRU cache, and the literals are parsed with the codec
+ * of their column and bound. Statements which cannot be rewritten are executed as they are.
+ */
+public class PreparedStatementRewriter {
+
+    private static final Logger log = LoggerFactory.getLogger(PreparedStatementRewriter.class);
+
+    private static final Pattern UNQUOTED_LITERAL = Pattern.compile(
+            "(?i)-?(\\d+(\\.\\d*)?([eE][+-]?\\d+)?|NaN|Infinity)" +
+                    "|0x[0-9a-f]*" +
+                    "|[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}" +
+                    "|true|false|null");
+
+    private final Session session;
+    private final Map<String, Optional<PreparedStatement>> cache;
+
+    private long boundStatements = 0;
+    private long simpleStatements = 0;
+    private long preparedShapes = 0;
+
+    public PreparedStatementRewriter(Session session, int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be positive: " + cacheSize);
+        }
+        this.session = session;
+        this.cache = new LinkedHashMap<String, Optional<PreparedStatement>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Optional<PreparedStatement>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @return a bound statement for the INSERT statements with literal values, a simple statement otherwise
+     */
+    public Statement rewrite(String statement) {
+        Shape shape = normalize(statement);
+        if (shape != null) {
+            PreparedStatement prepared = prepare(shape.getQuery());
+            if (prepared != null) {
+                try {
+                    BoundStatement bound = bind(prepared, shape.getLiterals());
+                    boundStatements++;
+                    return bound;
+                } catch (RuntimeException e) {
+                    log.debug("cannot bind literals of {} : {}", statement, e.getMessage());
+                }
+            }
+        }
+        simpleStatements++;
+        return new SimpleStatement(statement);
+    }
+
+    /**
+     * Forgets the prepared statements, to be called after schema changes.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    public void logStatistics() {
+        log.info("{} statements executed as bound statements of {} prepared statements, {} statements executed as is",
+                boundStatements, preparedShapes, simpleStatements);
+    }
+
+    public long getBoundStatements() {
+        return boundStatements;
+    }
+
+    public long getSimpleStatements() {
+        return simpleStatements;
+    }
+
+    public long getPreparedShapes() {
+        return preparedShapes;
+    }
+
+    private PreparedStatement prepare(String query) {
+        String key = session.getLoggedKeyspace() + "/" + query;
+        Optional<PreparedStatement> prepared = cache.get(key);
+        if (prepared == null) {
+            try {
+                prepared = Optional.of(session.prepare(query));
+                preparedShapes++;
+            } catch (RuntimeException e) {
+                log.debug("cannot prepare {} : {}", query, e.getMessage());
+                prepared = Optional.empty();
+            }
+            cache.put(key, prepared);
+        }
+        return prepared.orElse(null);
+    }
+
+    private BoundStatement bind(PreparedStatement prepared, List<String> literals) {
+        ColumnDefinitions variables = prepared.getVariables();
+        if (variables.size() != literals.size()) {
+            throw new IllegalArgumentException("expected " + variables.size() + " values");
+        }
+        CodecRegistry codecRegistry = session.getCluster().getConfiguration().getCodecRegistry();
+        BoundStatement bound = prepared.bind();
+        for (int i = 0; i < literals.size(); i++) {
+            TypeCodec<Object> codec = codecRegistry.codecFor(variables.getType(i));
+            bound.set(i, codec.parse(literals.get(i)), codec);
+        }
+        return bound;
+    }
+
+    /**
+     * @return the statement with its literal values replaced by bind markers, or null if it is not an INSERT with
+     * literal values
+     */
+    static Shape normalize(String statement) {
+        CQLModification insert = CQLModification.parse(statement);
+        if (insert == null || insert.getType() != CQLModification.Type.INSERT) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder("INSERT INTO ");
+        if (insert.getKeyspace() != null) {
+            query.append(insert.getKeyspace()).append('.');
+        }
+        query.append(insert.getTable()).append(" (")
+                .append(String.join(", ", insert.getColumns()))
+                .append(") VALUES (");
+        List<String> literals = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (String term : insert.getTerms()) {
+            if (isLiteral(term)) {
+                literals.add(term);
+                values.add("?");
+            } else {
+                values.add(term);
+            }
+        }
+        if (literals.isEmpty()) {
+            return null;
+        }
+        query.append(String.join(", ", values)).append(')');
+        String tail = insert.getInsertTail();
+        if (!tail.isEmpty() && !tail.startsWith(";")) {
+            query.append(' ');
+        }
+        query.append(tail);
+        return new Shape(query.toString(), literals);
+    }
+
+    static boolean isLiteral(String term) {
+        char first = term.charAt(0);
+        return first == '\'' || first == '[' || first == '{' || term.startsWith("$$")
+                || UNQUOTED_LITERAL.matcher(term).matches();
+    }
+
+    static class Shape {
+
+        private final String query;
+        private final List<String> literals;
+
+        Shape(String query, List<String> literals) {
+            this.query = query;
+            this.literals = Collections.unmodifiableList(literals);
+        }
+
+        String getQuery() {
+            return query;
+        }
+
+        List<String> getLiterals() {
+            return literals;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TypeCodec;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.exceptions.InvalidRequestException;
+import org.apache.cassandra.io.sstable.CQLSSTableWriter;
+import org.apache.cassandra.service.ClientState;
+import org.cassandraunit.dataset.cql.CQLModification;
+import org.cassandraunit.exception.CassandraUnitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Writes INSERT statements with literal values to SSTables with {@link CQLSSTableWriter}, directly in the data
+ * directories of the embedded node, and attaches them with {@link ColumnFamilyStore#loadNewSSTables()}. The rows skip
+ * the native protocol, the commit log and the memtables.
+ * <p>
+ * Statements are only imported into tables of the node running in this JVM, without counters or materialized views.
+ * Each row gets its own write timestamp, so that the rows written to the same cells keep the dataset order.
+ */
+public class SSTableImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(SSTableImporter.class);
+
+    public static final int DEFAULT_BUFFER_SIZE_IN_MB = 64;
+
+    private static final Pattern USING_TIMESTAMP = Pattern.compile("(?is).*\\bTIMESTAMP\\b.*");
+
+    private final Session session;
+    private final int bufferSizeInMB;
+    private final ClientState clientState = ClientState.forInternalCalls();
+    private final Map<String, Writer> writers = new LinkedHashMap<>();
+    private final Set<ColumnFamilyStore> tables = new LinkedHashSet<>();
+    private final Set<String> importedKeyspaces = new LinkedHashSet<>();
+
+    private long importedRows = 0;
+    private long loadedTables = 0;
+
+    public SSTableImporter(Session session, int bufferSizeInMB) {
+        if (bufferSizeInMB < 1) {
+            throw new IllegalArgumentException("bufferSizeInMB must be positive: " + bufferSizeInMB);
+        }
+        this.session = session;
+        this.bufferSizeInMB = bufferSizeInMB;
+    }
+
+    /**
+     * Writes the row of an INSERT statement to the SSTables of its table. The row is only visible once
+     * {@link #flush()} has been called.
+     *
+     * @return false if the statement cannot be imported, and must be executed instead
+     */
+    public boolean add(String statement) {
+        if (!DatabaseDescriptor.isDaemonInitialized()) {
+            return false;
+        }
+        CQLModification insert = CQLModification.parse(statement);
+        if (insert == null || insert.getType() != CQLModification.Type.INSERT
+                || !insert.getTerms().stream().allMatch(PreparedStatementRewriter::isLiteral)) {
+            return false;
+        }
+        String keyspace = insert.getKeyspace() != null ?
+                CQLModification.internalName(insert.getKeyspace()) : session.getLoggedKeyspace();
+        if (keyspace == null) {
+            return false;
+        }
+        String table = CQLModification.internalName(insert.getTable());
+        String key = keyspace + "." + table + "/" + String.join(",", insert.getColumns()) + "/" + insert.getInsertTail();
+        Writer writer = writers.get(key);
+        if (writer == null) {
+            writer = open(keyspace, table, insert);
+            if (writer == null) {
+                return false;
+            }
+            writers.put(key, writer);
+            importedKeyspaces.add(keyspace);
+        }
+
+        List<ByteBuffer> values;
+        try {
+            values = writer.serialize(insert.getTerms());
+        } catch (RuntimeException e) {
+            log.debug("cannot serialize the values of {} : {}", statement, e.getMessage());
+            return false;
+        }
+        try {
+            writer.sstableWriter.rawAddRow(values);
+        } catch (IOException | InvalidRequestException e) {
+            throw new CassandraUnitException("Failed to import statement: " + statement, e);
+        }
+        importedRows++;
+        return true;
+    }
+
+    /**
+     * Completes the SSTables written so far and loads them in their tables.
+     */
+    public void flush() {
+        if (writers.isEmpty()) {
+            return;
+        }
+        for (Writer writer : writers.values()) {
+            try {
+                writer.sstableWriter.close();
+            } catch (IOException e) {
+                throw new CassandraUnitException("Failed to write SSTables", e);
+            }
+        }
+        writers.clear();
+        for (ColumnFamilyStore table : tables) {
+            log.debug("loading new SSTables of {}.{}", table.keyspace.getName(), table.name);
+            table.loadNewSSTables();
+            loadedTables++;
+        }
+        tables.clear();
+    }
+
+    public void logStatistics() {
+        log.info("{} rows imported as SSTables in {} table loads", importedRows, loadedTables);
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    /**
+     * @return the keyspaces of the tables SSTables were written for, whether they were loaded or not
+     */
+    public Set<String> getImportedKeyspaces() {
+        return Collections.unmodifiableSet(importedKeyspaces);
+    }
+
+    private Writer open(String keyspace, String table, CQLModification insert) {
+        KeyspaceMetadata keyspaceMetadata = session.getCluster().getMetadata().getKeyspace(Metadata.quote(keyspace));
+        TableMetadata tableMetadata = keyspaceMetadata == null ? null : keyspaceMetadata.getTable(Metadata.quote(table));
+        ColumnFamilyStore cfs = ColumnFamilyStore.getIfExists(keyspace, table);
+        if (tableMetadata == null || cfs == null || !tableMetadata.getViews().isEmpty()) {
+            return null;
+        }
+        CodecRegistry codecRegistry = session.getCluster().getConfiguration().getCodecRegistry();
+        List<TypeCodec<Object>> codecs = new ArrayList<>();
+        for (String column : insert.getColumns()) {
+            ColumnMetadata columnMetadata = tableMetadata.getColumn(column);
+            if (columnMetadata == null || columnMetadata.getType().getName() == DataType.Name.COUNTER) {
+                return null;
+            }
+            codecs.add(codecRegistry.codecFor(columnMetadata.getType()));
+        }
+        boolean timestamped = !USING_TIMESTAMP.matcher(insert.getInsertTail()).matches();
+        String insertStatement = insertStatement(keyspace, table, insert.getColumns(), insert.getInsertTail(), timestamped);
+
+        if (tables.add(cfs)) {
+            // an empty memtable cannot be flushed to SSTables taking the generations of the imported ones
+            cfs.forceBlockingFlush();
+        }
+        log.debug("writing SSTables of {}.{} with {}", keyspace, table, insertStatement);
+        CQLSSTableWriter sstableWriter = CQLSSTableWriter.builder()
+                .inDirectory(cfs.getDirectories().getDirectoryForNewSSTables())
+                .forTable(tableMetadata.asCQLQuery())
+                .using(insertStatement)
+                .withPartitioner(DatabaseDescriptor.getPartitioner())
+                .withBufferSizeInMB(bufferSizeInMB)
+                .build();
+        return new Writer(sstableWriter, codecs, timestamped,
+                session.getCluster().getConfiguration().getProtocolOptions().getProtocolVersion());
+    }
+
+    /**
+     * @return the INSERT statement with bind markers given to the SSTable writer, with a bind marker for the timestamp
+     * if timestamped
+     */
+    static String insertStatement(String keyspace, String table, List<String> columns, String tail, boolean timestamped) {
+        StringBuilder statement = new StringBuilder("INSERT INTO ")
+                .append(Metadata.quoteIfNecessary(keyspace)).append('.').append(Metadata.quoteIfNecessary(table))
+                .append(" (").append(String.join(", ", columns)).append(") VALUES (")
+                .append(String.join(", ", Collections.nCopies(columns.size(), "?"))).append(')');
+        String using = tail.endsWith(";") ? tail.substring(0, tail.length() - 1).trim() : tail;
+        if (timestamped) {
+            statement.append(" USING TIMESTAMP ?");
+            if (!using.isEmpty()) {
+                // USING TTL ...
+                statement.append(" AND ").append(using.substring("USING".length()).trim());
+            }
+        } else if (!using.isEmpty()) {
+            statement.append(' ').append(using);
+        }
+        return statement.toString();
+    }
+
+    private class Writer {
+
+        private final CQLSSTableWriter sstableWriter;
+        private final List<TypeCodec<Object>> codecs;
+        private final boolean timestamped;
+        private final ProtocolVersion protocolVersion;
+
+        Writer(CQLSSTableWriter sstableWriter, List<TypeCodec<Object>> codecs, boolean timestamped,
+               ProtocolVersion protocolVersion) {
+            this.sstableWriter = sstableWriter;
+            this.codecs = codecs;
+            this.timestamped = timestamped;
+            this.protocolVersion = protocolVersion;
+        }
+
+        List<ByteBuffer> serialize(List<String> terms) {
+            List<ByteBuffer> values = new ArrayList<>(terms.size() + 1);
+            for (int i = 0; i < terms.size(); i++) {
+                TypeCodec<Object> codec = codecs.get(i);
+                values.add(codec.serialize(codec.parse(terms.get(i)), protocolVersion));
+            }
+            if (timestamped) {
+                values.add(TypeCodec.bigint().serialize(clientState.getTimestamp(), protocolVersion));
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.cassandraunit.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the successive phases of an embedded node startup. Each phase lasts until the next one starts, or until
+ * the startup is finished; phases may be started from the thread activating the node.
+ */
+public class StartupPhases {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupPhases.class);
+
+    public static final String REPORT_FILE_NAME = "startup-phases.json";
+
+    private final String version;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private String currentPhase;
+    private long currentPhaseStartNanos;
+    private long endNanos;
+    private boolean finished = false;
+    private long heapUsedBytes = -1;
+    private long heapCommittedBytes = -1;
+    private int threadCount = -1;
+    private Map<String, Long> readiness = Collections.emptyMap();
+
+    public StartupPhases(String version) {
+        this.version = version;
+    }
+
+    /**
+     * Ends the current phase and starts the given one. Ignored once the startup is finished.
+     */
+    public synchronized void start(String phase) {
+        if (finished) {
+            return;
+        }
+        long now = System.nanoTime();
+        endCurrentPhase(now);
+        currentPhase = phase;
+        currentPhaseStartNanos = now;
+    }
+
+    /**
+     * Ends the current phase and the startup.
+     */
+    public synchronized void finish() {
+        if (finished) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        endCurrentPhase(endNanos);
+        finished = true;
+    }
+
+    /**
+     * @return the duration in milliseconds of each ended phase, in startup order
+     */
+    public synchronized Map<String, Long> getDurations() {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        for (Phase phase : phases) {
+            durations.put(phase.name, TimeUnit.NANOSECONDS.toMillis(phase.endNanos - phase.startNanos));
+        }
+        return Collections.unmodifiableMap(durations);
+    }
+
+    /**
+     * @return the duration of the whole startup in milliseconds, up to now if it is not finished
+     */
+    public synchronized long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((finished ? endNanos : System.nanoTime()) - startNanos);
+    }
+
+    /**
+     * Records the time in milliseconds taken by each readiness criterion of the started node.
+     */
+    public synchronized void recordReadiness(Map<String, Long> readiness) {
+        this.readiness = Collections.unmodifiableMap(new LinkedHashMap<>(readiness));
+    }
+
+    public synchronized Map<String, Long> getReadiness() {
+        return readiness;
+    }
+
+    /**
+     * Measures the heap and the live threads of the JVM, to be called once the node is started.
+     */
+    public synchronized void recordFootprint() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        heapUsedBytes = heap.getUsed();
+        heapCommittedBytes = heap.getCommitted();
+        threadCount = ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+    /**
+     * @return the heap used after the startup in bytes, or -1 if it was not measured
+     */
+    public synchronized long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    public synchronized long getHeapCommittedBytes() {
+        return heapCommittedBytes;
+    }
+
+    /**
+     * @return the live threads after the startup, or -1 if they were not counted
+     */
+    public synchronized int getThreadCount() {
+        return threadCount;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{\n")
+                .append("  \"version\": \"").append(escape(version)).append("\",\n")
+                .append("  \"startedAt\": \"").append(startedAt).append("\",\n")
+                .append("  \"finished\": ").append(finished).append(",\n")
+                .append("  \"totalMillis\": ").append(getTotalMillis()).append(",\n");
+        if (threadCount >= 0) {
+            json.append("  \"heapUsedBytes\": ").append(heapUsedBytes).append(",\n")
+                    .append("  \"heapCommittedBytes\": ").append(heapCommittedBytes).append(",\n")
+                    .append("  \"threadCount\": ").append(threadCount).append(",\n");
+        }
+        if (!readiness.isEmpty()) {
+            json.append("  \"readiness\": {");
+            String separator = "";
+            for (Map.Entry<String, Long> criterion : readiness.entrySet()) {
+                json.append(separator).append('"').append(escape(criterion.getKey())).append("\": ").append(criterion.getValue());
+                separator = ", ";
+            }
+            json.append("},\n");
+        }
+        json.append("  \"phases\": [");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"name\": \"").append(escape(phase.name))
+                    .append("\", \"startMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(phase.startNanos - startNanos))
+                    .append(", \"durationMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(phase.endNanos - phase.startNanos))
+                    .append('}');
+        }
+        return json.append(phases.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    /**
+     * Writes the JSON report in the directory, and logs the phase durations.
+     */
+    public void writeReport(File directory) {
+        log.info("embedded node startup took {} ms: {}", getTotalMillis(), getDurations());
+        if (getThreadCount() >= 0) {
+            log.info("embedded node footprint: {} MB of heap used ({} MB committed), {} threads",
+                    getHeapUsedBytes() / (1024 * 1024), getHeapCommittedBytes() / (1024 * 1024), getThreadCount());
+        }
+        File report = new File(directory, REPORT_FILE_NAME);
+        try (Writer writer = Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        } catch (IOException e) {
+            log.warn("Failed to write startup report " + report, e);
+        }
+    }
+
+    private void endCurrentPhase(long now) {
+        if (currentPhase != null) {
+            phases.add(new Phase(currentPhase, currentPhaseStartNanos, now));
+            currentPhase = null;
+        }
+    }
+
+    private static String escape(String value) {
+        return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static class Phase {
+
+        private final String name;
+        private final long startNanos;
+        private final long endNanos;
+
+        Phase(String name, long startNanos, long endNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.cassandraunit.utils;
+
+import org.apache.cassandra.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves the data, commitlog, hints, cdc and saved caches directories of the embedded node to a RAM-backed filesystem,
+ * when the {@value #STORAGE_PROPERTY} system property is set to {@value #TMPFS}. The directories are created under
+ * {@value #DEFAULT_TMPFS_DIR}, or the directory given by the {@value #TMPFS_DIR_PROPERTY} system property, and deleted
+ * when the JVM exits. The node keeps its configured directories when no such filesystem is writable.
+ */
+public class TmpfsStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(TmpfsStorage.class);
+
+    public static final String STORAGE_PROPERTY = "cassandra-unit.storage";
+    public static final String TMPFS_DIR_PROPERTY = "cassandra-unit.storage.tmpfsDir";
+
+    public static final String TMPFS = "tmpfs";
+    public static final String DEFAULT_TMPFS_DIR = "/dev/shm";
+
+    public static boolean isEnabled() {
+        return TMPFS.equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY));
+    }
+
+    /**
+     * Points the directories of the configuration to a new directory of the RAM-backed filesystem. To be called
+     * once the configuration is loaded, before the directories are created.
+     *
+     * @return the new root of the directories, or null if they are kept on disk
+     */
+    public static File relocate(Config config) {
+        File tmpfs = new File(System.getProperty(TMPFS_DIR_PROPERTY, DEFAULT_TMPFS_DIR));
+        if (!tmpfs.isDirectory() || !tmpfs.canWrite()) {
+            log.info("{} is not writable, the embedded node keeps its data on disk", tmpfs);
+            return null;
+        }
+        File root;
+        try {
+            // one root per JVM, forks may share the filesystem
+            root = Files.createTempDirectory(tmpfs.toPath(), "cassandra-unit-").toFile();
+        } catch (IOException e) {
+            log.warn("Failed to create a directory in " + tmpfs + ", the embedded node keeps its data on disk", e);
+            return null;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteRecursive(root.toPath())));
+
+        String[] dataDirectories = new String[config.data_file_directories.length];
+        for (int i = 0; i < dataDirectories.length; i++) {
+            dataDirectories[i] = new File(root, i == 0 ? "data" : "data-" + i).getPath();
+        }
+        config.data_file_directories = dataDirectories;
+        config.commitlog_directory = new File(root, "commitlog").getPath();
+        config.hints_directory = new File(root, "hints").getPath();
+        config.cdc_raw_directory = new File(root, "cdc").getPath();
+        config.saved_caches_directory = new File(root, "saved_caches").getPath();
+        log.info("embedded node directories moved to {}", root);
+        return root;
+    }
+
+    private static void deleteRecursive(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            List<Path> paths = files.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path file : paths) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete " + path, e);
+        }
+    }
+}
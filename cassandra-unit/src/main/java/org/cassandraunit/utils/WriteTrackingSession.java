@@ -0,0 +1,264 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.AbstractSession;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.CloseFuture;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.GuavaCompatibility;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.cassandra.cql3.CQLFragmentParser;
+import org.apache.cassandra.cql3.CqlParser;
+import org.apache.cassandra.cql3.statements.AuthenticationStatement;
+import org.apache.cassandra.cql3.statements.AuthorizationStatement;
+import org.apache.cassandra.cql3.statements.CFStatement;
+import org.apache.cassandra.cql3.statements.ModificationStatement;
+import org.apache.cassandra.cql3.statements.ParsedStatement;
+import org.apache.cassandra.cql3.statements.SchemaAlteringStatement;
+import org.apache.cassandra.cql3.statements.TruncateStatement;
+import org.apache.cassandra.cql3.statements.UseStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session recording the tables written to or truncated through it, so that the cleanup of a forked node only truncates
+ * those. The cleanup of the embedded node of this JVM truncates them along with the tables it finds holding data.
+ * Enabled for the session of {@link EmbeddedCassandraServerHelper#getSession()} by the
+ * {@value EmbeddedCassandraServerHelper#WRITE_TRACKING_PROPERTY} system property.
+ * <p>
+ * The tables of a keyspace are tracked once they were emptied by a cleanup, see {@link #markClean(String, String...)}.
+ * Statements are attributed with the CQL parser of Cassandra: a statement which cannot be attributed, such as a CQL
+ * batch or a statement wrapper, stops the tracking of every keyspace until its next cleanup. Writes which bypass this
+ * session, such as in-process loading, SSTable imports or snapshot restores, must stop the tracking of their keyspace
+ * with {@link #untrack(String)}.
+ */
+public class WriteTrackingSession extends AbstractSession {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteTrackingSession.class);
+
+    private final Session delegate;
+    /** keyspaces whose tables were emptied, since when every write to them went through this session */
+    private final Set<String> trackedKeyspaces;
+    /** tables written to or truncated, by keyspace */
+    private final Map<String, Set<String>> dirtyTables;
+
+    private final LoadingCache<String, Target> targets = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build(new CacheLoader<String, Target>() {
+                @Override
+                public Target load(String query) {
+                    return Target.of(query);
+                }
+            });
+
+    public WriteTrackingSession(Session delegate) {
+        this(delegate, ConcurrentHashMap.newKeySet(), new ConcurrentHashMap<>());
+    }
+
+    private WriteTrackingSession(Session delegate, Set<String> trackedKeyspaces, Map<String, Set<String>> dirtyTables) {
+        this.delegate = delegate;
+        this.trackedKeyspaces = trackedKeyspaces;
+        this.dirtyTables = dirtyTables;
+    }
+
+    /**
+     * @return a session of the delegate, e.g. a session of another cluster, sharing the tracking of this session: the
+     * writes through either session are recorded for both
+     */
+    public WriteTrackingSession sharingTracking(Session delegate) {
+        return new WriteTrackingSession(delegate, trackedKeyspaces, dirtyTables);
+    }
+
+    public Session getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the tables of the keyspace written to or truncated since its last cleanup, or null if the keyspace is not
+     * tracked
+     */
+    public Set<String> getDirtyTables(String keyspace) {
+        if (!trackedKeyspaces.contains(keyspace)) {
+            return null;
+        }
+        Set<String> tables = dirtyTables.get(keyspace);
+        return tables == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(tables));
+    }
+
+    /**
+     * Starts tracking the keyspace, once its tables were emptied.
+     *
+     * @param keptTables tables which were not emptied, still considered dirty
+     */
+    public void markClean(String keyspace, String... keptTables) {
+        Set<String> tables = ConcurrentHashMap.newKeySet();
+        Collections.addAll(tables, keptTables);
+        dirtyTables.put(keyspace, tables);
+        trackedKeyspaces.add(keyspace);
+    }
+
+    /**
+     * Stops tracking the keyspace, which was written to without this session.
+     */
+    public void untrack(String keyspace) {
+        trackedKeyspaces.remove(keyspace);
+    }
+
+    @Override
+    public String getLoggedKeyspace() {
+        return delegate.getLoggedKeyspace();
+    }
+
+    @Override
+    public Session init() {
+        delegate.init();
+        return this;
+    }
+
+    @Override
+    public ListenableFuture<Session> initAsync() {
+        return GuavaCompatibility.INSTANCE.transform(delegate.initAsync(), (Function<Session, Session>) session -> this);
+    }
+
+    @Override
+    public ResultSetFuture executeAsync(Statement statement) {
+        // recorded before the execution, a failed write may still have been applied
+        track(statement, delegate.getLoggedKeyspace());
+        return delegate.executeAsync(statement);
+    }
+
+    @Override
+    protected ListenableFuture<PreparedStatement> prepareAsync(String query, Map<String, ByteBuffer> customPayload) {
+        SimpleStatement statement = new SimpleStatement(query);
+        if (customPayload != null) {
+            statement.setOutgoingPayload(customPayload);
+        }
+        return delegate.prepareAsync(statement);
+    }
+
+    @Override
+    public CloseFuture closeAsync() {
+        return delegate.closeAsync();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public Cluster getCluster() {
+        return delegate.getCluster();
+    }
+
+    @Override
+    public State getState() {
+        return delegate.getState();
+    }
+
+    private void track(Statement statement, String loggedKeyspace) {
+        if (statement instanceof BatchStatement) {
+            for (Statement child : ((BatchStatement) statement).getStatements()) {
+                track(child, loggedKeyspace);
+            }
+        } else if (statement instanceof BoundStatement) {
+            PreparedStatement prepared = ((BoundStatement) statement).preparedStatement();
+            track(prepared.getQueryString(), prepared.getQueryKeyspace());
+        } else if (statement instanceof RegularStatement) {
+            track(((RegularStatement) statement).getQueryString(), loggedKeyspace);
+        } else {
+            untracked(statement);
+        }
+    }
+
+    private void track(String query, String defaultKeyspace) {
+        Target target = targets.getUnchecked(query);
+        if (target.kind == Target.Kind.NONE) {
+            return;
+        }
+        String keyspace = target.keyspace != null ? target.keyspace : defaultKeyspace;
+        if (target.kind == Target.Kind.UNKNOWN || keyspace == null) {
+            untracked(query);
+        } else {
+            dirtyTables.computeIfAbsent(keyspace, k -> ConcurrentHashMap.newKeySet()).add(target.table);
+        }
+    }
+
+    private void untracked(Object statement) {
+        log.debug("writes of {} are not tracked", statement);
+        trackedKeyspaces.clear();
+    }
+
+    /**
+     * The table whose rows a statement changes, its keyspace being null when the statement does not name it.
+     */
+    static class Target {
+
+        enum Kind {
+            /** reads and schema changes, which write no rows */
+            NONE,
+            WRITE,
+            UNKNOWN
+        }
+
+        private static final Target NONE = new Target(Kind.NONE, null, null);
+        private static final Target UNKNOWN = new Target(Kind.UNKNOWN, null, null);
+
+        final Kind kind;
+        final String keyspace;
+        final String table;
+
+        private Target(Kind kind, String keyspace, String table) {
+            this.kind = kind;
+            this.keyspace = keyspace;
+            this.table = table;
+        }
+
+        static Target of(String query) {
+            ParsedStatement statement;
+            try {
+                statement = CQLFragmentParser.parseAnyUnhandled(CqlParser::query, query);
+            } catch (Exception e) {
+                return UNKNOWN;
+            }
+            if (statement instanceof ModificationStatement.Parsed || statement instanceof TruncateStatement) {
+                return written((CFStatement) statement);
+            }
+            if (statement instanceof org.apache.cassandra.cql3.statements.BatchStatement.Parsed) {
+                // the statements of CQL batches are not exposed by the parser
+                return UNKNOWN;
+            }
+            // selects and the raw statements of table changes are CFStatements as well
+            if (statement instanceof CFStatement || statement instanceof UseStatement
+                    || statement instanceof SchemaAlteringStatement
+                    || statement instanceof AuthenticationStatement || statement instanceof AuthorizationStatement) {
+                return NONE;
+            }
+            return UNKNOWN;
+        }
+
+        private static Target written(CFStatement statement) {
+            // resolves unqualified tables to the empty keyspace
+            statement.prepareKeyspace("");
+            String keyspace = statement.keyspace();
+            return new Target(Kind.WRITE, keyspace.isEmpty() ? null : keyspace, statement.columnFamily());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.cassandraunit;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.cassandraunit.dataset.cql.SimpleCQLDataSet;
+import org.cassandraunit.exception.CassandraUnitException;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CQLDataLoadTestWithAsyncLoading {
+
+    private Session session;
+
+    @Before
+    public void before() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        session = EmbeddedCassandraServerHelper.getSession();
+    }
+
+    @Test
+    public void shouldLoadDataSetAsynchronously() {
+        new CQLDataLoader(session).withAsyncLoading(2).load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+
+        ResultSet result = session.execute("select * from testCQLTable");
+        assertEquals(3, result.all().size());
+    }
+
+    @Test
+    public void shouldReportTheFirstFailingStatement() {
+        SimpleCQLDataSet dataSet = new SimpleCQLDataSet(
+                "CREATE TABLE testCQLTable (id int, value varchar, PRIMARY KEY(id));" +
+                "INSERT INTO testCQLTable(id, value) values(1,'first');" +
+                "INSERT INTO testCQLTable(id, unknown) values(2,'second');" +
+                "INSERT INTO testCQLTable(id, value) values(3,'third');", "mykeyspace");
+        try {
+            new CQLDataLoader(session).withAsyncLoading().load(dataSet);
+            fail();
+        } catch (CassandraUnitException e) {
+            assertThat(e.getMessage(), containsString("statement #3"));
+        }
+    }
+}
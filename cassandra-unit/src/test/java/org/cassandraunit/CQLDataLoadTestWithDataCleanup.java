@@ -0,0 +1,38 @@
+package org.cassandraunit;
+
+import com.datastax.driver.core.Session;
+import org.cassandraunit.dataset.cql.SimpleCQLDataSet;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CQLDataLoadTestWithDataCleanup {
+
+    private Session session;
+
+    @Before
+    public void before() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        session = EmbeddedCassandraServerHelper.getSession();
+        new CQLDataLoader(session).load(new SimpleCQLDataSet(
+                "CREATE TABLE first (id int PRIMARY KEY, value text);" +
+                "CREATE TABLE second (id int PRIMARY KEY, value text);" +
+                "CREATE TABLE empty (id int PRIMARY KEY, value text);" +
+                "CREATE TABLE excluded (id int PRIMARY KEY, value text);" +
+                "INSERT INTO first (id, value) VALUES (1, 'first');" +
+                "INSERT INTO second (id, value) VALUES (1, 'second');" +
+                "INSERT INTO excluded (id, value) VALUES (1, 'excluded');", "mykeyspace"));
+    }
+
+    @Test
+    public void shouldTruncateTablesExceptExcludedOnes() {
+        EmbeddedCassandraServerHelper.cleanDataEmbeddedCassandra("mykeyspace", "excluded");
+
+        assertEquals(0, session.execute("select * from first").all().size());
+        assertEquals(0, session.execute("select * from second").all().size());
+        assertEquals(0, session.execute("select * from empty").all().size());
+        assertEquals(1, session.execute("select * from excluded").all().size());
+    }
+}
@@ -0,0 +1,56 @@
+package org.cassandraunit;
+
+import com.datastax.driver.core.Session;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.cassandraunit.utils.InProcessQueryExecutor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class CQLDataLoadTestWithInProcessExecution {
+
+    private Session session;
+
+    @Before
+    public void before() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        session = EmbeddedCassandraServerHelper.getSession();
+    }
+
+    @Test
+    public void shouldLoadDataSetInProcess() {
+        new CQLDataLoader(session).withInProcessExecution().load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+
+        assertEquals("mykeyspace", session.getLoggedKeyspace());
+        assertEquals(3, session.execute("select * from testCQLTable").all().size());
+    }
+
+    @Test
+    public void shouldBatchStatementsInProcess() {
+        new CQLDataLoader(session).withInProcessExecution().withUnloggedBatching()
+                .load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+
+        assertEquals(3, session.execute("select * from testCQLTable").all().size());
+    }
+
+    @Test
+    public void shouldRecordTheKeyspacesWrittenTo() {
+        new CQLDataLoader(session).load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+
+        InProcessQueryExecutor executor = new InProcessQueryExecutor();
+        executor.execute("select * from mykeyspace.testCQLTable");
+        executor.execute("insert into mykeyspace.testCQLTable(id, value) values(1690e8da-5bf8-49e8-9583-4dff8a570740,'qualified')");
+
+        assertEquals(Collections.singleton("mykeyspace"), executor.getWrittenKeyspaces());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotCombineInProcessExecutionWithAsyncLoading() {
+        new CQLDataLoader(session).withInProcessExecution().withAsyncLoading()
+                .load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+    }
+}
@@ -0,0 +1,153 @@
+package org.cassandraunit;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Session;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.cassandraunit.dataset.cql.SimpleCQLDataSet;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+/**
+ * Runs test classes using the {@link CassandraUnitExtension} with the JUnit 5 launcher.
+ */
+public class CQLDataLoadTestWithJunit5Extension {
+
+    /** keyspaces the sessions given to the JUnit 5 tests were logged into */
+    private static final List<String> usedKeyspaces = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void before() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        // the keyspace of another test class, loaded from the same dataset
+        new CQLDataLoader(EmbeddedCassandraServerHelper.getSession()).load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+        usedKeyspaces.clear();
+    }
+
+    @Test
+    public void shouldLoadAKeyspacePerTestClass() {
+        run(KeyspacePerClass.class);
+
+        assertThat(usedKeyspaces.size(), is(2));
+        assertThat(usedKeyspaces.get(0).matches("mykeyspace_[0-9]+"), is(true));
+        assertThat(usedKeyspaces.get(1), is(usedKeyspaces.get(0)));
+        assertDroppedAlone(usedKeyspaces);
+    }
+
+    @Test
+    public void shouldLoadAKeyspacePerTestMethod() {
+        run(KeyspacePerMethod.class);
+
+        assertThat(usedKeyspaces.size(), is(2));
+        assertThat(usedKeyspaces.get(0).matches("mykeyspace_[0-9]+"), is(true));
+        assertThat(usedKeyspaces.get(1).matches("mykeyspace_[0-9]+"), is(true));
+        assertThat(usedKeyspaces.get(1), is(not(usedKeyspaces.get(0))));
+        assertDroppedAlone(usedKeyspaces);
+    }
+
+    @Test
+    public void shouldRenameTheKeyspaceQualifyingTheStatements() {
+        run(QualifiedStatements.class, 1);
+
+        assertThat(usedKeyspaces.size(), is(1));
+        assertDroppedAlone(usedKeyspaces);
+        assertThat(EmbeddedCassandraServerHelper.getCluster().getMetadata().getKeyspace("mykeyspace").getTable("qualified"),
+                is(nullValue()));
+    }
+
+    private static void run(Class<?> testClass) {
+        run(testClass, 2);
+    }
+
+    private static void run(Class<?> testClass, long tests) {
+        SummaryGeneratingListener listener = new SummaryGeneratingListener();
+        LauncherFactory.create().execute(LauncherDiscoveryRequestBuilder.request().selectors(selectClass(testClass)).build(), listener);
+
+        TestExecutionSummary summary = listener.getSummary();
+        String failures = summary.getFailures().stream()
+                .map(failure -> failure.getTestIdentifier().getDisplayName() + ": " + failure.getException())
+                .collect(Collectors.joining(", "));
+        assertThat(failures, summary.getTotalFailureCount(), is(0L));
+        assertThat(summary.getTestsSucceededCount(), is(tests));
+    }
+
+    private static void assertDroppedAlone(List<String> keyspaces) {
+        Session session = EmbeddedCassandraServerHelper.getSession();
+        for (String keyspace : keyspaces) {
+            assertThat(session.getCluster().getMetadata().getKeyspace(keyspace), is(nullValue()));
+        }
+        assertThat(session.execute("select * from mykeyspace.testCQLTable").all().size(), is(3));
+    }
+
+    static class KeyspacePerClass {
+
+        @RegisterExtension
+        static CassandraUnitExtension cassandra = new CassandraUnitExtension(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+
+        @org.junit.jupiter.api.Test
+        void shouldInjectTheSession(Session session) {
+            usedKeyspaces.add(session.getLoggedKeyspace());
+            assertEquals(3, session.execute("select * from testCQLTable").all().size());
+        }
+
+        @org.junit.jupiter.api.Test
+        void shouldInjectTheCluster(Cluster cluster, Session session) {
+            usedKeyspaces.add(session.getLoggedKeyspace());
+            assertNotNull(cluster.getMetadata().getKeyspace(session.getLoggedKeyspace()));
+        }
+    }
+
+    static class KeyspacePerMethod {
+
+        @RegisterExtension
+        static CassandraUnitExtension cassandra = new CassandraUnitExtension(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"))
+                .withKeyspacePerMethod();
+
+        @org.junit.jupiter.api.Test
+        void shouldNotSeeTheRowsOfTheOtherMethod(Session session) {
+            insertRow(session);
+        }
+
+        @org.junit.jupiter.api.Test
+        void shouldNotSeeTheRowsOfTheOtherMethodEither(Session session) {
+            insertRow(session);
+        }
+
+        private static void insertRow(Session session) {
+            usedKeyspaces.add(session.getLoggedKeyspace());
+            assertEquals(3, session.execute("select * from testCQLTable").all().size());
+            session.execute("insert into testCQLTable(id, value) values(1690e8da-5bf8-49e8-9583-4dff8a570740,'added')");
+        }
+    }
+
+    static class QualifiedStatements {
+
+        @RegisterExtension
+        static CassandraUnitExtension cassandra = new CassandraUnitExtension(new SimpleCQLDataSet(
+                "CREATE TABLE mykeyspace.qualified (id int PRIMARY KEY, value text);" +
+                "INSERT INTO mykeyspace.qualified (id, value) VALUES (1, 'renamed');", "mykeyspace"));
+
+        @org.junit.jupiter.api.Test
+        void shouldLoadTheTableInTheGeneratedKeyspace(Session session) {
+            usedKeyspaces.add(session.getLoggedKeyspace());
+            assertEquals("renamed", session.execute("select value from qualified where id = 1").one().getString("value"));
+        }
+    }
+}
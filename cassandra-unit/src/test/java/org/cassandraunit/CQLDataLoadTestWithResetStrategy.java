@@ -0,0 +1,59 @@
+package org.cassandraunit;
+
+import org.cassandraunit.dataset.CQLDataSet;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CQLDataLoadTestWithResetStrategy extends AbstractCassandraUnit4CQLTestCase {
+
+    @Override
+    public CQLDataSet getDataSet() {
+        return new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace");
+    }
+
+    @Override
+    protected ResetStrategy getResetStrategy() {
+        return ResetStrategy.RESTORE_SNAPSHOT;
+    }
+
+    @Test
+    public void shouldResetInsertedRows() {
+        assertEquals(3, getSession().execute("select * from testCQLTable").all().size());
+
+        getSession().execute("insert into testCQLTable(id, value) values(1690e8da-5bf8-49e8-9583-4dff8a570740,'added')");
+    }
+
+    @Test
+    public void shouldResetDeletedRows() {
+        assertEquals(3, getSession().execute("select * from testCQLTable").all().size());
+
+        getSession().execute("delete from testCQLTable where id = 1690e8da-5bf8-49e8-9583-4dff8a570737");
+    }
+
+    @Test
+    public void shouldResetTruncatedTables() {
+        assertEquals(3, getSession().execute("select * from testCQLTable").all().size());
+
+        getSession().execute("truncate testCQLTable");
+    }
+
+    @Test
+    public void shouldDropTheKeyspacesCreatedByATest() {
+        createKeyspace();
+    }
+
+    @Test
+    public void shouldDropTheKeyspacesCreatedByAnotherTest() {
+        createKeyspace();
+    }
+
+    private void createKeyspace() {
+        assertEquals(3, getSession().execute("select * from testCQLTable").all().size());
+        assertNull(getSession().getCluster().getMetadata().getKeyspace("createdbytest"));
+
+        getSession().execute("create keyspace createdbytest with replication = {'class': 'SimpleStrategy', 'replication_factor': 1}");
+    }
+}
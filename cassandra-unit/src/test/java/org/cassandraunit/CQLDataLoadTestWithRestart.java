@@ -0,0 +1,54 @@
+package org.cassandraunit;
+
+import com.datastax.driver.core.Session;
+import org.cassandraunit.dataset.cql.SimpleCQLDataSet;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CQLDataLoadTestWithRestart {
+
+    @Before
+    public void before() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        new CQLDataLoader(EmbeddedCassandraServerHelper.getSession()).load(new SimpleCQLDataSet(
+                "CREATE TABLE restarted (id int PRIMARY KEY, value text);" +
+                "INSERT INTO restarted (id, value) VALUES (1, 'before restart');", "mykeyspace"));
+    }
+
+    @After
+    public void after() {
+        EmbeddedCassandraServerHelper.restartEmbeddedCassandra();
+    }
+
+    @Test
+    public void shouldKeepDataAcrossRestarts() {
+        for (int i = 0; i < 3; i++) {
+            EmbeddedCassandraServerHelper.stopEmbeddedCassandra();
+            assertTrue(EmbeddedCassandraServerHelper.isStopped());
+
+            EmbeddedCassandraServerHelper.restartEmbeddedCassandra();
+            assertFalse(EmbeddedCassandraServerHelper.isStopped());
+
+            Session session = EmbeddedCassandraServerHelper.getSession();
+            assertEquals("before restart",
+                    session.execute("select value from mykeyspace.restarted where id = 1").one().getString("value"));
+        }
+    }
+
+    @Test
+    public void shouldRestartOnNextStart() throws Exception {
+        EmbeddedCassandraServerHelper.stopEmbeddedCassandra();
+
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+
+        assertFalse(EmbeddedCassandraServerHelper.isStopped());
+        assertEquals(1, EmbeddedCassandraServerHelper.getSession()
+                .execute("select * from mykeyspace.restarted").all().size());
+    }
+}
@@ -0,0 +1,61 @@
+package org.cassandraunit;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.cassandraunit.dataset.cql.SimpleCQLDataSet;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.cassandraunit.utils.SSTableImporter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CQLDataLoadTestWithSSTableImport {
+
+    private Session session;
+
+    @Before
+    public void before() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        session = EmbeddedCassandraServerHelper.getSession();
+    }
+
+    @Test
+    public void shouldImportDataSetAsSSTables() {
+        new SSTableDataLoader(session).load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+
+        assertEquals(3, session.execute("select * from testCQLTable").all().size());
+    }
+
+    @Test
+    public void shouldRecordTheImportedKeyspaces() {
+        new SSTableDataLoader(session).load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+
+        SSTableImporter importer = new SSTableImporter(session, SSTableImporter.DEFAULT_BUFFER_SIZE_IN_MB);
+        assertTrue(importer.add("INSERT INTO mykeyspace.testCQLTable(id, value) values(1690e8da-5bf8-49e8-9583-4dff8a570740,'qualified');"));
+        importer.flush();
+
+        assertEquals(Collections.singleton("mykeyspace"), importer.getImportedKeyspaces());
+        assertEquals(4, session.execute("select * from testCQLTable").all().size());
+    }
+
+    @Test
+    public void shouldKeepTheDataSetOrder() {
+        SimpleCQLDataSet dataSet = new SimpleCQLDataSet(
+                "CREATE TABLE testCQLTable (id int, value varchar, PRIMARY KEY(id));" +
+                "INSERT INTO testCQLTable(id, value) values(1,'first');" +
+                "INSERT INTO testCQLTable(id, value) values(1,'second');" +
+                "INSERT INTO testCQLTable(id, value) values(2,'deleted');" +
+                "DELETE FROM testCQLTable WHERE id = 2;", "mykeyspace");
+        new SSTableDataLoader(session).load(dataSet);
+
+        List<Row> rows = session.execute("select * from testCQLTable").all();
+        assertEquals(1, rows.size());
+        assertEquals("second", rows.get(0).getString("value"));
+    }
+}
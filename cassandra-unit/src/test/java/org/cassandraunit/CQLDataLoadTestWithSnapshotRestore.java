@@ -0,0 +1,43 @@
+package org.cassandraunit;
+
+import com.datastax.driver.core.Session;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CQLDataLoadTestWithSnapshotRestore {
+
+    private Session session;
+
+    @Before
+    public void before() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        session = EmbeddedCassandraServerHelper.getSession();
+        new CQLDataLoader(session).load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+    }
+
+    @Test
+    public void shouldRestoreTheSnapshottedRows() {
+        EmbeddedCassandraServerHelper.snapshotKeyspace("mykeyspace");
+        session.execute("insert into testCQLTable(id, value) values(1690e8da-5bf8-49e8-9583-4dff8a570740,'added')");
+        session.execute("delete from testCQLTable where id = 1690e8da-5bf8-49e8-9583-4dff8a570737");
+
+        assertTrue(EmbeddedCassandraServerHelper.restoreKeyspace("mykeyspace"));
+        assertEquals(3, session.execute("select * from testCQLTable").all().size());
+        assertEquals("Cql loaded string", session.execute(
+                "select value from testCQLTable where id = 1690e8da-5bf8-49e8-9583-4dff8a570737").one().getString("value"));
+    }
+
+    @Test
+    public void shouldNotRestoreAKeyspaceWhoseTablesChanged() {
+        EmbeddedCassandraServerHelper.snapshotKeyspace("mykeyspace");
+        session.execute("create table otherTable (id int primary key)");
+
+        assertFalse(EmbeddedCassandraServerHelper.restoreKeyspace("mykeyspace"));
+    }
+}
@@ -0,0 +1,24 @@
+package org.cassandraunit;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CassandraUnitExtensionTest {
+
+    @Test
+    public void shouldNameKeyspacesAfterTheDataSet() {
+        assertThat(CassandraUnitExtension.keyspaceName("mykeyspace", 3), is("mykeyspace_3"));
+        assertThat(CassandraUnitExtension.keyspaceName("\"MyKeyspace\"", 3), is("mykeyspace_3"));
+        assertThat(CassandraUnitExtension.keyspaceName(null, 3), is(CQLDataLoader.DEFAULT_KEYSPACE_NAME + "_3"));
+    }
+
+    @Test
+    public void shouldKeepKeyspaceNamesShort() {
+        String name = CassandraUnitExtension.keyspaceName("a_very_long_keyspace_name_which_cassandra_would_reject", 12);
+
+        assertThat(name.length(), is(CassandraUnitExtension.MAX_PREFIX_LENGTH + 3));
+        assertThat(name.endsWith("_12"), is(true));
+    }
+}
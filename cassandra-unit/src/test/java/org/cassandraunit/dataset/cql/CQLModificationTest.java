@@ -0,0 +1,62 @@
+package org.cassandraunit.dataset.cql;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CQLModificationTest {
+
+    @Test
+    public void shouldParseInsert() {
+        CQLModification insert = CQLModification.parse(
+                "INSERT INTO ks.\"MyTable\"(id, value, tags) values(1690e8da-5bf8-49e8-9583-4dff8a570737,'it''s, here', {'a', 'b'}) USING TTL 10;");
+
+        assertThat(insert.getType(), is(CQLModification.Type.INSERT));
+        assertThat(insert.getKeyspace(), is("ks"));
+        assertThat(CQLModification.internalName(insert.getTable()), is("MyTable"));
+        assertThat(insert.getColumns(), is(Arrays.asList("id", "value", "tags")));
+        assertThat(insert.getTerms(), is(Arrays.asList("1690e8da-5bf8-49e8-9583-4dff8a570737", "'it''s, here'", "{'a', 'b'}")));
+        assertThat(insert.getInsertTail(), is("USING TTL 10;"));
+    }
+
+    @Test
+    public void shouldParseUpdateRestrictions() {
+        CQLModification update = CQLModification.parse(
+                "UPDATE testTable USING TTL 5 SET value = 'where', m['k'] = 1 WHERE id = 12 AND ck = 'a b';");
+
+        assertThat(update.getType(), is(CQLModification.Type.UPDATE));
+        assertThat(update.getKeyspace(), nullValue());
+        assertThat(update.getTerm("id"), is("12"));
+        assertThat(update.getTerm("ck"), is("'a b'"));
+        assertThat(update.getTerm("value"), nullValue());
+    }
+
+    @Test
+    public void shouldRenameTheKeyspace() {
+        assertThat(CQLModification.renameKeyspace("INSERT INTO MyKeyspace.t(id, value) VALUES (1, 'mykeyspace.t'); -- mykeyspace.t",
+                "mykeyspace", "mykeyspace_2"), is("INSERT INTO mykeyspace_2.t(id, value) VALUES (1, 'mykeyspace.t'); -- mykeyspace.t"));
+        assertThat(CQLModification.renameKeyspace("CREATE TABLE mykeyspace . t (id int PRIMARY KEY, mykeyspace text);",
+                "mykeyspace", "mykeyspace_2"), is("CREATE TABLE mykeyspace_2 . t (id int PRIMARY KEY, mykeyspace text);"));
+        assertThat(CQLModification.renameKeyspace("USE mykeyspace;", "mykeyspace", "mykeyspace_2"), is("USE mykeyspace_2;"));
+        assertThat(CQLModification.renameKeyspace("DROP KEYSPACE IF EXISTS mykeyspace;", "mykeyspace", "mykeyspace_2"),
+                is("DROP KEYSPACE IF EXISTS mykeyspace_2;"));
+        assertThat(CQLModification.renameKeyspace("SELECT * FROM \"MyKeyspace\".t;", "MyKeyspace", "\"MyKeyspace_2\""),
+                is("SELECT * FROM \"MyKeyspace_2\".t;"));
+        assertThat(CQLModification.renameKeyspace("INSERT INTO other.t(id) VALUES (1.5);", "mykeyspace", "mykeyspace_2"),
+                is("INSERT INTO other.t(id) VALUES (1.5);"));
+    }
+
+    @Test
+    public void shouldIgnoreOtherStatements() {
+        assertThat(CQLModification.parse("CREATE TABLE t (id int PRIMARY KEY);"), nullValue());
+        assertThat(CQLModification.parse("INSERT INTO t (id) VALUES (1) IF NOT EXISTS;"), nullValue());
+        assertThat(CQLModification.parse("INSERT INTO t (id) VALUES (?);"), nullValue());
+        assertThat(CQLModification.parse("INSERT INTO t JSON '{\"id\": 1}';"), nullValue());
+        assertThat(CQLModification.parse("UPDATE t SET v = 1 WHERE id IN (1, 2);"), nullValue());
+        assertThat(CQLModification.parse("UPDATE t SET v = 1 WHERE id = 1 IF v = 2;"), nullValue());
+    }
+}
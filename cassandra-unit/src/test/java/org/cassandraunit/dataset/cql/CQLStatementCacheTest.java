@@ -0,0 +1,53 @@
+package org.cassandraunit.dataset.cql;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CQLStatementCacheTest {
+
+    private static final List<String> STATEMENTS = Collections.singletonList(new String(new char[100]));
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        CQLStatementCache cache = new CQLStatementCache(1024);
+        assertThat(cache.get("a"), nullValue());
+        cache.put("a", STATEMENTS);
+
+        assertThat(cache.get("a"), is(STATEMENTS));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedDataSetsOverTheLimit() {
+        // each entry takes 240 bytes
+        CQLStatementCache cache = new CQLStatementCache(500);
+        cache.put("a", STATEMENTS);
+        cache.put("b", STATEMENTS);
+        cache.get("a");
+        cache.put("c", STATEMENTS);
+
+        assertThat(cache.get("a"), notNullValue());
+        assertThat(cache.get("b"), nullValue());
+        assertThat(cache.get("c"), notNullValue());
+        assertThat(cache.getEvictionCount(), is(1L));
+        assertThat(cache.getSizeInBytes(), is(480L));
+    }
+
+    @Test
+    public void shouldNotCacheDataSetsLargerThanTheLimit() {
+        CQLStatementCache cache = new CQLStatementCache(100);
+        List<String> statements = cache.put("a", Arrays.asList("INSERT", "INSERT"));
+
+        assertThat(statements.size(), is(2));
+        assertThat(cache.getEntryCount(), is(0));
+    }
+}
@@ -4,8 +4,14 @@ import org.cassandraunit.dataset.CQLDataSet;
 import org.cassandraunit.dataset.ParseException;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -53,6 +59,32 @@ public class ClasspathCQLDataSetTest {
         assertThat(dataSet.getCQLStatements().get(3),is("INSERT INTO testCQLTable(id, value) values(1690e8da-5bf8-49e8-9583-4dff8a570739,'BLA1');"));
     }
 
+    @Test
+    public void shouldLexASharedDataSetOnlyOnce() {
+        List<String> statements = new ClassPathCQLDataSet("cql/simple.cql").getCQLStatements();
+        long hits = CQLStatementCache.getInstance().getHitCount();
+        long misses = CQLStatementCache.getInstance().getMissCount();
+
+        assertThat(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace").getCQLStatements(), sameInstance(statements));
+        assertThat(CQLStatementCache.getInstance().getHitCount(), is(hits + 1));
+        assertThat(CQLStatementCache.getInstance().getMissCount(), is(misses));
+    }
+
+    @Test
+    public void shouldLexAModifiedDataSetAgain() throws Exception {
+        File directory = new File(getClass().getResource("/cql/simple.cql").toURI()).getParentFile();
+        File file = new File(directory, "modified-" + System.nanoTime() + ".cql");
+        try {
+            Files.write(file.toPath(), "INSERT INTO t(id) VALUES (1);".getBytes(StandardCharsets.UTF_8));
+            assertThat(new ClassPathCQLDataSet("cql/" + file.getName()).getCQLStatements().size(), is(1));
+
+            Files.write(file.toPath(), "INSERT INTO t(id) VALUES (1);\nINSERT INTO t(id) VALUES (2);".getBytes(StandardCharsets.UTF_8));
+            file.setLastModified(file.lastModified() + 2000);
+            assertThat(new ClassPathCQLDataSet("cql/" + file.getName()).getCQLStatements().size(), is(2));
+        } finally {
+            file.delete();
+        }
+    }
 
     @Test
     public void shouldGetDefinedTestKeyspaceName() {
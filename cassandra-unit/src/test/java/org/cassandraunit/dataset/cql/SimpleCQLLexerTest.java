@@ -3,7 +3,9 @@ package org.cassandraunit.dataset.cql;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Iterator;
 
 import static org.junit.Assert.*;
 
@@ -28,4 +30,19 @@ public class SimpleCQLLexerTest {
 
         assertThat(lexer.getStatements(), Matchers.hasSize(2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void canReadStatementsLazilyFromAReader() {
+        StringReader reader = new StringReader("CREATE TABLE t (id int, value text, PRIMARY KEY(id)); /* a comment\n"
+                + "with a ; inside */ INSERT INTO t (id, value)\n"
+                + "    VALUES (1, 'first; value'); -- trailing comment\n"
+                + "INSERT INTO t (id, value) VALUES (2, 'second')");
+
+        Iterator<String> statements = new SimpleCQLLexer(reader).iterator();
+
+        assertEquals("CREATE TABLE t (id int, value text, PRIMARY KEY(id));", statements.next());
+        assertEquals("INSERT INTO t (id, value) VALUES (1, 'first; value');", statements.next());
+        assertEquals("INSERT INTO t (id, value) VALUES (2, 'second')", statements.next());
+        assertFalse(statements.hasNext());
+    }
+}
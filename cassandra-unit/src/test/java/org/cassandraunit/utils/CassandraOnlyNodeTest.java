@@ -0,0 +1,91 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.Session;
+import org.cassandraunit.CQLDataLoader;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Starts a node without Elasticsearch in a child JVM, the embedded node of a JVM being started once.
+ */
+public class CassandraOnlyNodeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldLoadADataSetWithoutElasticsearch() throws Exception {
+        File results = new File(folder.getRoot(), "results.properties");
+        File log = new File(folder.getRoot(), "node.log");
+        Process process = new ProcessBuilder(ForkedNodePool.javaCommand(CassandraOnlyNode.class, results.getAbsolutePath()))
+                .directory(folder.getRoot())
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        assertThat("node still running, see " + log, process.waitFor(3, TimeUnit.MINUTES), is(true));
+
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(results)) {
+            properties.load(input);
+        }
+        assertThat(properties.getProperty("rows"), is("3"));
+        assertThat(properties.getProperty("elasticsearchStarted"), is("false"));
+        assertThat(properties.getProperty("elasticsearchNode"),
+                is("IllegalStateException: The embedded node was started without Elasticsearch"));
+        assertThat(properties.getProperty("restartWithElasticsearch"),
+                is("UnsupportedOperationException: The embedded node was started without Elasticsearch, "
+                        + "we can't enable it in the same JVM instance"));
+    }
+
+    /**
+     * Runs in the child JVM, writing what it observed in the properties file given as argument.
+     */
+    public static class CassandraOnlyNode {
+
+        public static void main(String[] args) throws Exception {
+            Properties results = new Properties();
+            try {
+                EmbeddedCassandraServerHelper.startEmbeddedCassandra(EmbeddedCassandraServerHelper.CASSANDRA_RNDPORT_YML_FILE,
+                        EmbeddedCassandraServerHelper.DEFAULT_TMP_DIR, EmbeddedCassandraServerHelper.DEFAULT_STARTUP_TIMEOUT, false);
+                Session session = EmbeddedCassandraServerHelper.getSession();
+                new CQLDataLoader(session).load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+                results.setProperty("rows", String.valueOf(session.execute("SELECT * FROM mykeyspace.testCQLTable").all().size()));
+                results.setProperty("elasticsearchStarted", String.valueOf(EmbeddedCassandraServerHelper.isElasticsearchStarted()));
+                results.setProperty("elasticsearchNode", failure(EmbeddedCassandraServerHelper::getElasticsearchNode));
+                results.setProperty("restartWithElasticsearch", failure(() -> {
+                    EmbeddedCassandraServerHelper.startEmbeddedCassandra(EmbeddedCassandraServerHelper.CASSANDRA_RNDPORT_YML_FILE,
+                            EmbeddedCassandraServerHelper.DEFAULT_TMP_DIR, EmbeddedCassandraServerHelper.DEFAULT_STARTUP_TIMEOUT, true);
+                    return null;
+                }));
+            } finally {
+                try (OutputStream output = new FileOutputStream(args[0])) {
+                    results.store(output, null);
+                }
+                System.exit(0);
+            }
+        }
+
+        private static String failure(Callable<?> call) {
+            try {
+                call.call();
+                return "none";
+            } catch (Exception e) {
+                return e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.cassandraunit.utils;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+public class DataDirectoryTemplateTest {
+
+    @Test
+    public void shouldShareTheTemplateOfConfigurationsOnOtherPorts() {
+        assertThat(DataDirectoryTemplate.key("6.8.4", "cluster_name: 'Test'\nnative_transport_port: 9142\n"),
+                is(DataDirectoryTemplate.key("6.8.4", "cluster_name: 'Test'\nnative_transport_port: 40123\n")));
+    }
+
+    @Test
+    public void shouldKeyTheTemplateOnVersionAndConfiguration() {
+        String key = DataDirectoryTemplate.key("6.8.4 3.11", "cluster_name: 'Test'\n");
+
+        assertThat(key, startsWith("6.8.4_3.11-"));
+        assertThat(key, not(DataDirectoryTemplate.key("6.8.4 3.11", "cluster_name: 'Other'\n")));
+        assertThat(key, not(DataDirectoryTemplate.key("6.8.5 3.11", "cluster_name: 'Test'\n")));
+    }
+}
@@ -0,0 +1,59 @@
+package org.cassandraunit.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DirectoryCleanerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldDeleteTheWholeTree() throws Exception {
+        Path directory = createTree();
+
+        DirectoryCleaner.delete(directory);
+
+        assertThat(Files.exists(directory), is(false));
+    }
+
+    @Test
+    public void shouldIgnoreMissingDirectories() {
+        DirectoryCleaner.delete(new File(folder.getRoot(), "missing").toPath());
+    }
+
+    @Test
+    public void shouldFreeTheDirectoryRightAwayAndDeleteItInTheBackground() throws Exception {
+        Path directory = createTree();
+
+        DirectoryCleaner.deleteInBackground(directory);
+
+        assertThat(Files.exists(directory), is(false));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (folder.getRoot().listFiles().length > 0 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        assertThat(folder.getRoot().listFiles(), arrayWithSize(0));
+    }
+
+    private Path createTree() throws Exception {
+        Path directory = folder.newFolder("data").toPath();
+        for (int table = 0; table < 10; table++) {
+            Path tableDirectory = Files.createDirectories(directory.resolve("ks").resolve("table" + table));
+            for (int component = 0; component < 20; component++) {
+                Files.write(tableDirectory.resolve("mc-" + component + "-big-Data.db"), new byte[]{1});
+            }
+        }
+        return directory;
+    }
+}
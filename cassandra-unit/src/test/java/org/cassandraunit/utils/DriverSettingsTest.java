@@ -0,0 +1,150 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.NettyOptions;
+import com.datastax.driver.core.ProtocolOptions;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.SocketOptions;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.cassandraunit.exception.CassandraUnitException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Properties;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DriverSettingsTest {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(DriverSettings.MAX_CONNECTIONS_PER_HOST_PROPERTY);
+        System.clearProperty(DriverSettings.COMPRESSION_PROPERTY);
+        System.clearProperty(DriverSettings.PROTOCOL_VERSION_PROPERTY);
+        System.clearProperty(DriverSettings.READ_TIMEOUT_PROPERTY);
+    }
+
+    @Test
+    public void shouldKeepTheDriverDefaultsWhenUnset() {
+        Configuration configuration = configuration(DriverSettings.fromSystemProperties());
+
+        assertThat(configuration.getProtocolOptions().getCompression(), is(ProtocolOptions.Compression.NONE));
+        assertThat(configuration.getSocketOptions().getReadTimeoutMillis(), is(SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS));
+        assertThat(configuration.getNettyOptions(), is(NettyOptions.DEFAULT_INSTANCE));
+    }
+
+    @Test
+    public void shouldApplyTheSettingsToTheCluster() {
+        DriverSettings settings = DriverSettings.builder()
+                .withConnectionsPerHost(2, 8)
+                .withMaxRequestsPerConnection(32768)
+                .withCompression(ProtocolOptions.Compression.LZ4)
+                .withProtocolVersion(ProtocolVersion.V4)
+                .withReadTimeoutMillis(30000)
+                .withTcpNoDelay(false)
+                .build();
+
+        Configuration configuration = configuration(settings);
+
+        assertThat(configuration.getPoolingOptions().getCoreConnectionsPerHost(HostDistance.LOCAL), is(2));
+        assertThat(configuration.getPoolingOptions().getMaxConnectionsPerHost(HostDistance.LOCAL), is(8));
+        assertThat(configuration.getPoolingOptions().getMaxRequestsPerConnection(HostDistance.LOCAL), is(32768));
+        assertThat(configuration.getProtocolOptions().getCompression(), is(ProtocolOptions.Compression.LZ4));
+        assertThat(configuration.getSocketOptions().getReadTimeoutMillis(), is(30000));
+        assertThat(configuration.getSocketOptions().getTcpNoDelay(), is(false));
+    }
+
+    @Test
+    public void shouldSizeTheEventLoop() {
+        Configuration configuration = configuration(DriverSettings.builder().withEventLoopThreads(2).build());
+
+        EventLoopGroup group = configuration.getNettyOptions().eventLoopGroup(new DefaultThreadFactory("test"));
+        try {
+            assertThat(group, instanceOf(NioEventLoopGroup.class));
+            assertThat(((NioEventLoopGroup) group).executorCount(), is(2));
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void shouldReadTheSystemProperties() {
+        System.setProperty(DriverSettings.MAX_CONNECTIONS_PER_HOST_PROPERTY, "4");
+        System.setProperty(DriverSettings.COMPRESSION_PROPERTY, "snappy");
+        System.setProperty(DriverSettings.PROTOCOL_VERSION_PROPERTY, "3");
+        System.setProperty(DriverSettings.READ_TIMEOUT_PROPERTY, "20000");
+
+        DriverSettings settings = DriverSettings.fromSystemProperties();
+        Configuration configuration = configuration(settings);
+
+        assertThat(configuration.getPoolingOptions().getCoreConnectionsPerHost(HostDistance.LOCAL), is(1));
+        assertThat(configuration.getPoolingOptions().getMaxConnectionsPerHost(HostDistance.LOCAL), is(4));
+        assertThat(configuration.getProtocolOptions().getCompression(), is(ProtocolOptions.Compression.SNAPPY));
+        assertThat(settings.getProtocolVersion(), is(ProtocolVersion.V3));
+        assertThat(configuration.getSocketOptions().getReadTimeoutMillis(), is(20000));
+    }
+
+    @Test
+    public void shouldParseProtocolVersions() {
+        assertThat(DriverSettings.Builder.protocolVersion("v4"), is(ProtocolVersion.V4));
+        assertThat(DriverSettings.Builder.protocolVersion("3"), is(ProtocolVersion.V3));
+    }
+
+    @Test(expected = CassandraUnitException.class)
+    public void shouldRejectAnUnknownCompression() {
+        System.setProperty(DriverSettings.COMPRESSION_PROPERTY, "zstd");
+
+        DriverSettings.fromSystemProperties();
+    }
+
+    @Test
+    public void shouldCompareSettingsByValue() {
+        DriverSettings settings = DriverSettings.builder().withMaxRequestsPerConnection(1024).build();
+
+        assertThat(settings, is(DriverSettings.builder().withMaxRequestsPerConnection(1024).build()));
+        assertThat(settings.toBuilder().withSocketOptions(settings.toSocketOptions()).build(), is(settings));
+        assertThat(settings.toBuilder().withReadTimeoutMillis(1000).build(), is(not(settings)));
+    }
+
+    @Test
+    public void shouldKeepAClusterPerSettings() {
+        Properties properties = new Properties();
+        properties.setProperty("host", "127.0.0.1");
+        properties.setProperty("nativeTransportPort", "9142");
+        properties.setProperty("rpcPort", "9171");
+        properties.setProperty("clusterName", "Test Cluster");
+        // clusters connect lazily, no node is needed
+        EmbeddedCassandraServerHelper.useForkedNode(new ForkedNode(new File("target"), properties));
+        try {
+            EmbeddedCassandraServerHelper.useDriverSettings(DriverSettings.builder().withReadTimeoutMillis(1000).build());
+            Cluster first = EmbeddedCassandraServerHelper.getCluster();
+            EmbeddedCassandraServerHelper.useDriverSettings(DriverSettings.builder().withReadTimeoutMillis(2000).build());
+            Cluster second = EmbeddedCassandraServerHelper.getCluster();
+
+            assertThat(second, is(not(sameInstance(first))));
+            assertThat(first.isClosed(), is(false));
+            EmbeddedCassandraServerHelper.useDriverSettings(DriverSettings.builder().withReadTimeoutMillis(1000).build());
+            assertThat(EmbeddedCassandraServerHelper.getCluster(), is(sameInstance(first)));
+
+            EmbeddedCassandraServerHelper.useForkedNode(null);
+            assertThat(first.isClosed(), is(true));
+            assertThat(second.isClosed(), is(true));
+        } finally {
+            EmbeddedCassandraServerHelper.useForkedNode(null);
+            EmbeddedCassandraServerHelper.useDriverSettings(DriverSettings.fromSystemProperties());
+        }
+    }
+
+    private static Configuration configuration(DriverSettings settings) {
+        return settings.applyTo(Cluster.builder().addContactPoint("127.0.0.1")).getConfiguration();
+    }
+}
@@ -0,0 +1,90 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Session;
+import org.cassandraunit.exception.CassandraUnitException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class EmbeddedCassandraClusterTest {
+
+    private static final String YAML = "cluster_name: 'Test Cluster'\n"
+            + "data_file_directories:\n"
+            + "    - target/embeddedCassandra/data\n"
+            + "commitlog_directory: target/embeddedCassandra/commitlog\n"
+            + "seed_provider:\n"
+            + "    - class_name: org.apache.cassandra.locator.SimpleSeedProvider\n"
+            + "      parameters:\n"
+            + "          - seeds: \"127.0.0.1\"\n"
+            + "listen_address: 127.0.0.1\n"
+            + "native_transport_port: 9142\n"
+            + "rpc_address: localhost\n";
+
+    private EmbeddedCassandraCluster cluster;
+
+    @After
+    public void stopCluster() throws Exception {
+        if (cluster != null) {
+            cluster.stop();
+            EmbeddedCassandraServerHelper.useForkedNode(null);
+        }
+    }
+
+    @Test
+    public void shouldBindTheNodeToItsLoopbackAddress() {
+        String configuration = EmbeddedCassandraCluster.nodeConfiguration(YAML, 2, "127.0.0.1", "/tmp/node2");
+
+        assertThat(configuration, containsString("\nlisten_address: 127.0.0.2\n"));
+        assertThat(configuration, containsString("\nrpc_address: 127.0.0.2\n"));
+        assertThat(configuration, containsString("- seeds: \"127.0.0.1\"\n"));
+        assertThat(configuration, containsString("\nnative_transport_port: 9142\n"));
+    }
+
+    @Test
+    public void shouldGiveTheNodeItsOwnDirectories() {
+        String configuration = EmbeddedCassandraCluster.nodeConfiguration(YAML, 2, "127.0.0.1", "/tmp/node2");
+
+        assertThat(configuration, containsString("    - /tmp/node2/data\n"));
+        assertThat(configuration, containsString("commitlog_directory: /tmp/node2/commitlog\n"));
+        assertThat(configuration, not(containsString("target/embeddedCassandra")));
+        assertThat(configuration, containsString("auto_bootstrap: false"));
+    }
+
+    @Test
+    public void shouldStartARingNextToTheEmbeddedNode() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+
+        cluster = EmbeddedCassandraCluster.builder().withNodes(2).start();
+
+        Set<Host> hosts = cluster.getCluster().getMetadata().getAllHosts();
+        assertThat(hosts.stream().map(host -> host.getAddress().getHostAddress()).collect(Collectors.toList()),
+                containsInAnyOrder("127.0.0.1", "127.0.0.2"));
+        assertThat(hosts.stream().allMatch(Host::isUp), is(true));
+        Session session = cluster.getSession();
+        session.execute("CREATE KEYSPACE ring WITH replication = {'class': 'SimpleStrategy', 'replication_factor': 2}");
+        assertThat(session.execute("SELECT peer FROM system.peers").all().size(), is(1));
+        // the first node is used by the helper, instead of the embedded node
+        assertThat(EmbeddedCassandraServerHelper.getForkedNode(), is(cluster.getNodes().get(0)));
+        assertThat(EmbeddedCassandraServerHelper.getSession().getCluster().getMetadata().getKeyspace("ring")
+                .getReplication().get("replication_factor"), is("2"));
+    }
+
+    @Test(expected = CassandraUnitException.class)
+    public void shouldRejectThePortsOfTheEmbeddedNode() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+
+        cluster = EmbeddedCassandraCluster.builder()
+                .withNodes(2)
+                .withYaml(EmbeddedCassandraServerHelper.DEFAULT_CASSANDRA_YML_FILE)
+                .start();
+    }
+}
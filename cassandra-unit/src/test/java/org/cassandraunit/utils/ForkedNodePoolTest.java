@@ -0,0 +1,70 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.Session;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.cassandraunit.CQLDataLoader;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Starts a node of the pool in a child JVM and loads a dataset into it.
+ */
+public class ForkedNodePoolTest {
+
+    @After
+    public void stopNode() {
+        EmbeddedCassandraServerHelper.stopEmbeddedCassandra();
+        EmbeddedCassandraServerHelper.useForkedNode(null);
+    }
+
+    @Test
+    public void shouldQueryTheForkedNode() throws Exception {
+        boolean embeddedNodeStarted = DatabaseDescriptor.isDaemonInitialized();
+
+        EmbeddedCassandraServerHelper.startForkedCassandra(EmbeddedCassandraServerHelper.CASSANDRA_RNDPORT_YML_FILE);
+        ForkedNode node = EmbeddedCassandraServerHelper.getForkedNode();
+        assertThat(node.isAlive(), is(true));
+        assertThat(EmbeddedCassandraServerHelper.getNativeTransportPort(), is(node.getNativeTransportPort()));
+
+        // the forked node stands for the embedded node, which is not started in this JVM
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        assertThat(EmbeddedCassandraServerHelper.getForkedNode(), is(sameInstance(node)));
+        assertThat(DatabaseDescriptor.isDaemonInitialized(), is(embeddedNodeStarted));
+
+        Session session = EmbeddedCassandraServerHelper.getSession();
+        new CQLDataLoader(session).load(new ClassPathCQLDataSet("cql/simple.cql", "mykeyspace"));
+        assertThat(session.execute("SELECT * FROM mykeyspace.testCQLTable").all().size(), is(3));
+    }
+
+    @Test
+    public void shouldKeepTheAttachedNodeRunningForTheOtherJvms() throws Exception {
+        System.setProperty(EmbeddedCassandraServerHelper.ATTACH_PROPERTY, "true");
+        try {
+            startCassandraOnly();
+            ForkedNode node = EmbeddedCassandraServerHelper.getForkedNode();
+
+            EmbeddedCassandraServerHelper.stopEmbeddedCassandra();
+            assertThat(EmbeddedCassandraServerHelper.isStopped(), is(true));
+            assertThat(node.isAlive(), is(true));
+
+            startCassandraOnly();
+            assertThat(EmbeddedCassandraServerHelper.getForkedNode(), is(sameInstance(node)));
+            assertThat(EmbeddedCassandraServerHelper.isStopped(), is(false));
+        } finally {
+            System.clearProperty(EmbeddedCassandraServerHelper.ATTACH_PROPERTY);
+            KeyspaceIsolation.disable();
+            ForkedNodePool.getInstance().stop(EmbeddedCassandraServerHelper.getForkedNode(),
+                    EmbeddedCassandraServerHelper.DEFAULT_STARTUP_TIMEOUT);
+        }
+    }
+
+    private static void startCassandraOnly() throws Exception {
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra(EmbeddedCassandraServerHelper.CASSANDRA_RNDPORT_YML_FILE,
+                EmbeddedCassandraServerHelper.DEFAULT_TMP_DIR, EmbeddedCassandraServerHelper.DEFAULT_STARTUP_TIMEOUT, false);
+    }
+}
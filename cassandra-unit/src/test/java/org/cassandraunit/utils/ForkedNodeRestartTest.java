@@ -0,0 +1,117 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.Session;
+import org.cassandraunit.exception.CassandraUnitException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Restarts a forked node on the data and the commitlog it left.
+ */
+public class ForkedNodeRestartTest {
+
+    private static final long TIMEOUT = EmbeddedCassandraServerHelper.DEFAULT_STARTUP_TIMEOUT;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void stopNode() {
+        EmbeddedCassandraServerHelper.stopEmbeddedCassandra();
+        EmbeddedCassandraServerHelper.useForkedNode(null);
+    }
+
+    /**
+     * @return a file of the random port configuration, whose acknowledged writes survive a crash of the node. A file
+     * is used as it is, its ports are picked here.
+     */
+    private String batchCommitlogConfiguration() throws IOException {
+        String rndport = EmbeddedCassandraServerHelper.readConfigurationResource(EmbeddedCassandraServerHelper.CASSANDRA_RNDPORT_YML_FILE);
+        String yaml = EmbeddedCassandraServerHelper.replaceZeroPorts(rndport)
+                .replaceFirst("(?m)^commitlog_sync:.*$", "commitlog_sync: batch")
+                .replaceFirst("(?m)^commitlog_sync_period_in_ms:.*$", "commitlog_sync_batch_window_in_ms: 2");
+        File file = new File(folder.newFolder("conf"), "cu-cassandra-batch-commitlog.yaml");
+        Files.write(file.toPath(), yaml.getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    @Test
+    public void shouldReplayTheWritesOfAKilledNode() throws Exception {
+        ForkedNodePool pool = new ForkedNodePool(folder.getRoot(), 60000);
+        EmbeddedCassandraServerHelper.useForkedNode(pool.acquire(batchCommitlogConfiguration(), TIMEOUT, false));
+        Session session = EmbeddedCassandraServerHelper.getSession();
+        session.execute("CREATE KEYSPACE replayed WITH replication = {'class': 'SimpleStrategy', 'replication_factor': 1}"
+                + " AND durable_writes = true");
+        session.execute("CREATE TABLE replayed.rows (id int PRIMARY KEY, value text)");
+        session.execute("INSERT INTO replayed.rows (id, value) VALUES (1, 'flushed')");
+
+        // drains the node, flushing its schema and its memtables
+        EmbeddedCassandraServerHelper.stopEmbeddedCassandra();
+        assertThat(EmbeddedCassandraServerHelper.isStopped(), is(true));
+        EmbeddedCassandraServerHelper.restartEmbeddedCassandra();
+        assertThat(EmbeddedCassandraServerHelper.isStopped(), is(false));
+        session = EmbeddedCassandraServerHelper.getSession();
+        assertThat(session.execute("SELECT * FROM replayed.rows").all().size(), is(1));
+
+        session.execute("INSERT INTO replayed.rows (id, value) VALUES (2, 'replayed')");
+        session.execute("INSERT INTO replayed.rows (id, value) VALUES (3, 'replayed')");
+        ForkedNode killed = EmbeddedCassandraServerHelper.getForkedNode();
+        killed.kill();
+        assertThat(killed.awaitExit(TIMEOUT), is(true));
+        EmbeddedCassandraServerHelper.stopEmbeddedCassandra();
+
+        EmbeddedCassandraServerHelper.restartEmbeddedCassandra();
+
+        assertThat(EmbeddedCassandraServerHelper.getForkedNode().getDirectory(), is(killed.getDirectory()));
+        session = EmbeddedCassandraServerHelper.getSession();
+        assertThat(session.execute("SELECT * FROM replayed.rows").all().size(), is(3));
+        assertThat(session.execute("SELECT value FROM replayed.rows WHERE id = 3").one().getString("value"), is("replayed"));
+    }
+
+    @Test
+    public void shouldNotRestartARunningNodeOnTheNextStarts() throws Exception {
+        ForkedNodePool pool = new ForkedNodePool(folder.getRoot(), 60000);
+        EmbeddedCassandraServerHelper.useForkedNode(pool.acquire(batchCommitlogConfiguration(), TIMEOUT, false));
+        ForkedNode node = EmbeddedCassandraServerHelper.getForkedNode();
+
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        EmbeddedCassandraServerHelper.startEmbeddedCassandra();
+        EmbeddedCassandraServerHelper.restartEmbeddedCassandra();
+
+        assertThat(EmbeddedCassandraServerHelper.getForkedNode(), is(sameInstance(node)));
+        assertThat(EmbeddedCassandraServerHelper.isStopped(), is(false));
+        assertThat(node.isAlive(), is(true));
+    }
+
+    @Test
+    public void shouldNotRestartANodeUsedByOtherJvms() throws Exception {
+        ForkedNodePool pool = new ForkedNodePool(folder.getRoot(), 60000);
+        ForkedNode node = pool.acquire(batchCommitlogConfiguration(), TIMEOUT, false);
+        EmbeddedCassandraServerHelper.useForkedNode(node);
+        // the lease of another JVM
+        File lease = new File(new File(node.getDirectory(), ForkedNode.LEASES_DIR), "other-jvm");
+        assertThat(lease.createNewFile(), is(true));
+
+        try {
+            pool.restart(node, TIMEOUT);
+            fail("restarted a node used by another JVM");
+        } catch (CassandraUnitException e) {
+            assertThat(e.getMessage(), containsString("used by 1 other JVMs"));
+        }
+        assertThat(node.isAlive(), is(true));
+        assertThat(lease.delete(), is(true));
+    }
+}
@@ -0,0 +1,56 @@
+package org.cassandraunit.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class KeyspaceIsolationTest {
+
+    @After
+    public void disable() {
+        KeyspaceIsolation.disable();
+        System.clearProperty(KeyspaceIsolation.FORK_ID_PROPERTY);
+    }
+
+    @Test
+    public void shouldKeepKeyspacesWhenDisabled() {
+        assertThat(KeyspaceIsolation.isolate("mykeyspace"), is("mykeyspace"));
+        assertThat(KeyspaceIsolation.isOwned("otherkeyspace"), is(true));
+    }
+
+    @Test
+    public void shouldSuffixKeyspacesWithTheForkId() {
+        System.setProperty(KeyspaceIsolation.FORK_ID_PROPERTY, "2");
+        KeyspaceIsolation.enable();
+
+        assertThat(KeyspaceIsolation.isolate("mykeyspace"), is("mykeyspace_2"));
+        assertThat(KeyspaceIsolation.isolate("\"MyKeyspace\""), is("\"MyKeyspace_2\""));
+        assertThat(KeyspaceIsolation.isolate(KeyspaceIsolation.isolate("mykeyspace")), is("mykeyspace_2"));
+    }
+
+    @Test
+    public void shouldIsolateTheStatementsOfADataSet() {
+        assertThat(KeyspaceIsolation.isolate("INSERT INTO mykeyspace.t(id) VALUES (1);", "mykeyspace"),
+                is("INSERT INTO mykeyspace.t(id) VALUES (1);"));
+
+        System.setProperty(KeyspaceIsolation.FORK_ID_PROPERTY, "2");
+        KeyspaceIsolation.enable();
+
+        assertThat(KeyspaceIsolation.isolate("INSERT INTO mykeyspace.t(id) VALUES (1);", "mykeyspace"),
+                is("INSERT INTO mykeyspace_2.t(id) VALUES (1);"));
+        assertThat(KeyspaceIsolation.isolate("INSERT INTO t(id) VALUES (1);", "mykeyspace"), is("INSERT INTO t(id) VALUES (1);"));
+        assertThat(KeyspaceIsolation.isolate("INSERT INTO t(id) VALUES (1);", null), is("INSERT INTO t(id) VALUES (1);"));
+    }
+
+    @Test
+    public void shouldOnlyOwnTheKeyspacesOfTheFork() {
+        System.setProperty(KeyspaceIsolation.FORK_ID_PROPERTY, "2");
+        KeyspaceIsolation.enable();
+
+        assertThat(KeyspaceIsolation.isOwned("mykeyspace_2"), is(true));
+        assertThat(KeyspaceIsolation.isOwned("mykeyspace_3"), is(false));
+        assertThat(KeyspaceIsolation.isOwned("mykeyspace"), is(false));
+    }
+}
@@ -0,0 +1,54 @@
+package org.cassandraunit.utils;
+
+import org.junit.Test;
+import org.yaml.snakeyaml.Yaml;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LeanConfigurationTest {
+
+    @Test
+    public void shouldDeriveTheLeanConfigurationFromTheDefaultOne() throws Exception {
+        Map<String, Object> defaults = load(EmbeddedCassandraServerHelper.DEFAULT_CASSANDRA_YML_FILE);
+        Map<String, Object> lean = load(EmbeddedCassandraServerHelper.LEAN_CASSANDRA_YML_FILE);
+
+        assertThat(lean.get("concurrent_reads"), is(4));
+        assertThat(lean.get("rpc_max_threads"), is(16));
+        assertThat(lean.get("counter_cache_size_in_mb"), is(0));
+        assertThat(lean.get("native_transport_port"), is(defaults.get("native_transport_port")));
+        assertThat(lean.get("cluster_name"), is(defaults.get("cluster_name")));
+    }
+
+    @Test
+    public void shouldOverrideTheSettingsWhereverTheyAre() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("concurrent_reads", "4");
+        settings.put("concurrent_compactors", "1");
+        settings.put("memtable_heap_space_in_mb", "32");
+
+        String yaml = EmbeddedCassandraServerHelper.overrideSettings("concurrent_reads: 32\n"
+                + "# the number of concurrent_compactors: defaults to the number of disks\n"
+                + "#concurrent_compactors: 2\n", settings);
+
+        assertThat(yaml, is("concurrent_reads: 4\n"
+                + "# the number of concurrent_compactors: defaults to the number of disks\n"
+                + "concurrent_compactors: 1\n"
+                + "memtable_heap_space_in_mb: 32\n"));
+    }
+
+    @Test
+    public void shouldKeepTheConfigurationWithoutSettings() {
+        assertThat(EmbeddedCassandraServerHelper.overrideSettings("concurrent_reads: 32\n", Collections.emptyMap()),
+                is("concurrent_reads: 32\n"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> load(String yamlFile) throws Exception {
+        return (Map<String, Object>) new Yaml().load(EmbeddedCassandraServerHelper.readConfigurationResource(yamlFile));
+    }
+}
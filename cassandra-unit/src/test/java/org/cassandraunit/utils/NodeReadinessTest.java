@@ -0,0 +1,49 @@
+package org.cassandraunit.utils;
+
+import org.cassandraunit.exception.CassandraUnitException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NodeReadinessTest {
+
+    @Test
+    public void shouldPollEachCriterionUntilItIsMet() {
+        AtomicInteger polls = new AtomicInteger();
+
+        Map<String, Long> durations = new NodeReadiness()
+                .withCriterion("native transport", () -> true)
+                .withCriterion("schema agreement", () -> polls.incrementAndGet() >= 3)
+                .await(5000);
+
+        assertThat(polls.get(), is(3));
+        assertThat(new ArrayList<>(durations.keySet()), contains("native transport", "schema agreement"));
+    }
+
+    @Test
+    public void shouldRetryFailingCriteria() {
+        AtomicInteger polls = new AtomicInteger();
+
+        new NodeReadiness()
+                .withCriterion("elasticsearch yellow", () -> {
+                    if (polls.incrementAndGet() < 2) {
+                        throw new IllegalStateException("not started");
+                    }
+                    return true;
+                })
+                .await(5000);
+
+        assertThat(polls.get(), is(2));
+    }
+
+    @Test(expected = CassandraUnitException.class)
+    public void shouldFailOnceTheTimeoutExpires() {
+        new NodeReadiness().withCriterion("never", () -> false).await(100);
+    }
+}
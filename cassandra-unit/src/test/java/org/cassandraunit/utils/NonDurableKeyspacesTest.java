@@ -0,0 +1,22 @@
+package org.cassandraunit.utils;
+
+import org.apache.cassandra.schema.KeyspaceMetadata;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NonDurableKeyspacesTest {
+
+    @Test
+    public void shouldTurnDurableWritesOffAndKeepTheReplication() {
+        KeyspaceMetadata metadata = KeyspaceMetadata.create("mykeyspace", KeyspaceParams.simple(1));
+
+        KeyspaceMetadata nonDurable = NonDurableKeyspaces.nonDurable(metadata);
+
+        assertThat(nonDurable.name, is("mykeyspace"));
+        assertThat(nonDurable.params.durableWrites, is(false));
+        assertThat(nonDurable.params.replication, is(metadata.params.replication));
+    }
+}
@@ -0,0 +1,78 @@
+package org.cassandraunit.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PartitionBatcherTest {
+
+    @Test
+    public void shouldGroupConsecutiveWritesToTheSamePartition() {
+        PartitionBatcher batcher = new PartitionBatcher("ks", (keyspace, table) -> Collections.singletonList("id"), 1024);
+
+        Iterator<List<String>> groups = batcher.group(Arrays.asList(
+                "CREATE TABLE t (id int, ck int, v text, PRIMARY KEY(id, ck));",
+                "INSERT INTO t(id, ck, v) VALUES (1, 1, 'a');",
+                "INSERT INTO t(id, ck, v) VALUES (1, 2, 'b');",
+                "UPDATE t SET v = 'c' WHERE id = 1 AND ck = 3;",
+                "INSERT INTO t(id, ck, v) VALUES (2, 1, 'd');",
+                "INSERT INTO other.t(id, ck, v) VALUES (2, 2, 'e');").iterator());
+
+        assertThat(groups.next().size(), is(1));
+        assertThat(groups.next().size(), is(3));
+        assertThat(groups.next().size(), is(1));
+        assertThat(groups.next().size(), is(1));
+        assertThat(groups.hasNext(), is(false));
+        assertThat(batcher.getBatches(), is(1L));
+        assertThat(batcher.getBatchedStatements(), is(3L));
+        assertThat(batcher.getSingleStatements(), is(3L));
+    }
+
+    @Test
+    public void shouldNotExceedTheMaximumBatchSize() {
+        String insert = "INSERT INTO t(id, v) VALUES (1, 'abcdefghijklmnopqrstuvwxyz');";
+        PartitionBatcher batcher = new PartitionBatcher("ks", (keyspace, table) -> Collections.singletonList("id"),
+                insert.length() * 2);
+
+        Iterator<List<String>> groups = batcher.group(Arrays.asList(insert, insert, insert).iterator());
+
+        assertThat(groups.next().size(), is(2));
+        assertThat(groups.next().size(), is(1));
+    }
+
+    @Test
+    public void shouldMeasureTheBatchSizeInBytes() {
+        String insert = "INSERT INTO t(id, v) VALUES (1, '\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9');";
+        PartitionBatcher batcher = new PartitionBatcher("ks", (keyspace, table) -> Collections.singletonList("id"),
+                insert.length() * 2);
+
+        Iterator<List<String>> groups = batcher.group(Arrays.asList(insert, insert).iterator());
+
+        assertThat(groups.next().size(), is(1));
+        assertThat(groups.next().size(), is(1));
+    }
+
+    @Test
+    public void shouldNotGroupUnknownTables() {
+        PartitionBatcher batcher = new PartitionBatcher("ks", (keyspace, table) -> null, 1024);
+
+        Iterator<List<String>> groups = batcher.group(Arrays.asList(
+                "INSERT INTO t(id) VALUES (1);",
+                "INSERT INTO t(id) VALUES (1);").iterator());
+
+        assertThat(groups.next().size(), is(1));
+        assertThat(groups.next().size(), is(1));
+    }
+
+    @Test
+    public void shouldWriteAnUnloggedBatch() {
+        assertThat(PartitionBatcher.toStatement(Arrays.asList("INSERT INTO t(id) VALUES (1);", "INSERT INTO t(id) VALUES (2)")),
+                is("BEGIN UNLOGGED BATCH INSERT INTO t(id) VALUES (1); INSERT INTO t(id) VALUES (2); APPLY BATCH;"));
+    }
+}
@@ -0,0 +1,36 @@
+package org.cassandraunit.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PreparedStatementRewriterTest {
+
+    @Test
+    public void shouldReplaceLiteralsWithBindMarkers() {
+        PreparedStatementRewriter.Shape shape = PreparedStatementRewriter.normalize(
+                "INSERT INTO testCQLTable(id, value, created, tags) values(1690e8da-5bf8-49e8-9583-4dff8a570737,'Cql loaded string', now(), {'a'});");
+
+        assertThat(shape.getQuery(), is("INSERT INTO testCQLTable (id, value, created, tags) VALUES (?, ?, now(), ?);"));
+        assertThat(shape.getLiterals(), is(Arrays.asList("1690e8da-5bf8-49e8-9583-4dff8a570737", "'Cql loaded string'", "{'a'}")));
+    }
+
+    @Test
+    public void shouldGiveTheSameShapeToStatementsDifferingOnlyByTheirLiterals() {
+        PreparedStatementRewriter.Shape first = PreparedStatementRewriter.normalize("INSERT INTO t(id, v) VALUES (1, -2.5e3) USING TTL 10;");
+        PreparedStatementRewriter.Shape second = PreparedStatementRewriter.normalize("INSERT INTO t(id, v) VALUES (2, 0x0aff) USING TTL 10;");
+
+        assertThat(first.getQuery(), is(second.getQuery()));
+    }
+
+    @Test
+    public void shouldNotRewriteStatementsWithoutLiterals() {
+        assertThat(PreparedStatementRewriter.normalize("INSERT INTO t(id) VALUES (uuid());"), nullValue());
+        assertThat(PreparedStatementRewriter.normalize("UPDATE t SET v = 1 WHERE id = 1;"), nullValue());
+        assertThat(PreparedStatementRewriter.normalize("CREATE TABLE t (id int PRIMARY KEY);"), nullValue());
+    }
+}
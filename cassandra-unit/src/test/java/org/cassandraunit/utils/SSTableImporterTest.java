@@ -0,0 +1,29 @@
+package org.cassandraunit.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SSTableImporterTest {
+
+    @Test
+    public void shouldAddATimestampBindMarker() {
+        assertThat(SSTableImporter.insertStatement("ks", "t", Arrays.asList("id", "\"Value\""), ";", true),
+                is("INSERT INTO ks.t (id, \"Value\") VALUES (?, ?) USING TIMESTAMP ?"));
+    }
+
+    @Test
+    public void shouldKeepTheTimeToLive() {
+        assertThat(SSTableImporter.insertStatement("ks", "t", Arrays.asList("id"), "USING TTL 3600;", true),
+                is("INSERT INTO ks.t (id) VALUES (?) USING TIMESTAMP ? AND TTL 3600"));
+    }
+
+    @Test
+    public void shouldKeepTheTimestampOfTheStatement() {
+        assertThat(SSTableImporter.insertStatement("Ks", "t", Arrays.asList("id"), "USING TIMESTAMP 42", false),
+                is("INSERT INTO \"Ks\".t (id) VALUES (?) USING TIMESTAMP 42"));
+    }
+}
@@ -0,0 +1,64 @@
+package org.cassandraunit.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class StartupPhasesTest {
+
+    @Test
+    public void shouldTimeSuccessivePhases() {
+        StartupPhases phases = new StartupPhases("6.8.4");
+        phases.start("yaml");
+        phases.start("daemon initialization");
+        phases.finish();
+        phases.start("elasticsearch readiness");
+
+        assertThat(new ArrayList<>(phases.getDurations().keySet()), contains("yaml", "daemon initialization"));
+    }
+
+    @Test
+    public void shouldWriteAJsonReport() {
+        StartupPhases phases = new StartupPhases("6.8.4");
+        phases.start("yaml");
+        phases.finish();
+
+        String json = phases.toJson();
+        assertThat(json, containsString("\"version\": \"6.8.4\""));
+        assertThat(json, containsString("\"finished\": true"));
+        assertThat(json, containsString("{\"name\": \"yaml\", \"startMillis\": "));
+    }
+
+    @Test
+    public void shouldReportTheFootprintOnceRecorded() {
+        StartupPhases phases = new StartupPhases("6.8.4");
+        phases.finish();
+        assertThat(phases.toJson(), not(containsString("threadCount")));
+
+        phases.recordFootprint();
+
+        assertThat(phases.getThreadCount(), greaterThan(0));
+        assertThat(phases.getHeapUsedBytes(), greaterThan(0L));
+        assertThat(phases.toJson(), containsString("\"threadCount\": " + phases.getThreadCount()));
+    }
+
+    @Test
+    public void shouldReportTheReadinessOfTheNode() {
+        StartupPhases phases = new StartupPhases("6.8.4");
+        Map<String, Long> readiness = new LinkedHashMap<>();
+        readiness.put("native transport", 3L);
+        readiness.put("schema agreement", 0L);
+
+        phases.recordReadiness(readiness);
+
+        assertThat(phases.toJson(), containsString("\"readiness\": {\"native transport\": 3, \"schema agreement\": 0},"));
+    }
+}
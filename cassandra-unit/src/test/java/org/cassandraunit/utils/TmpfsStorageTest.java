@@ -0,0 +1,53 @@
+package org.cassandraunit.utils;
+
+import org.apache.cassandra.config.Config;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TmpfsStorageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(TmpfsStorage.TMPFS_DIR_PROPERTY);
+    }
+
+    @Test
+    public void shouldMoveEveryDirectoryUnderTheTmpfsRoot() throws Exception {
+        System.setProperty(TmpfsStorage.TMPFS_DIR_PROPERTY, folder.getRoot().getPath());
+        Config config = new Config();
+        config.data_file_directories = new String[]{"target/embeddedCassandra/data", "target/embeddedCassandra/data2"};
+
+        File root = TmpfsStorage.relocate(config);
+
+        assertThat(root.getParentFile(), is(folder.getRoot()));
+        assertThat(config.data_file_directories[0], is(new File(root, "data").getPath()));
+        assertThat(config.data_file_directories[1], is(new File(root, "data-1").getPath()));
+        assertThat(config.commitlog_directory, is(new File(root, "commitlog").getPath()));
+        assertThat(config.hints_directory, is(new File(root, "hints").getPath()));
+        assertThat(config.cdc_raw_directory, is(new File(root, "cdc").getPath()));
+        assertThat(config.saved_caches_directory, is(new File(root, "saved_caches").getPath()));
+    }
+
+    @Test
+    public void shouldKeepTheDirectoriesOnDiskWithoutTmpfs() {
+        System.setProperty(TmpfsStorage.TMPFS_DIR_PROPERTY, new File(folder.getRoot(), "missing").getPath());
+        Config config = new Config();
+        config.data_file_directories = new String[]{"target/embeddedCassandra/data"};
+        config.commitlog_directory = "target/embeddedCassandra/commitlog";
+
+        assertThat(TmpfsStorage.relocate(config), is(nullValue()));
+        assertThat(config.data_file_directories[0], is("target/embeddedCassandra/data"));
+        assertThat(config.commitlog_directory, is("target/embeddedCassandra/commitlog"));
+    }
+}
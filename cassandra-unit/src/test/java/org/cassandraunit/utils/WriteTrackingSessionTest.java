@@ -0,0 +1,92 @@
+package org.cassandraunit.utils;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class WriteTrackingSessionTest {
+
+    private WriteTrackingSession session;
+
+    @Before
+    public void setUp() {
+        // only the statements matter, the delegate does not execute them: the tests use executeAsync, execute checks the
+        // thread of the cluster
+        Session delegate = (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> "getLoggedKeyspace".equals(method.getName()) ? "mykeyspace" : null);
+        session = new WriteTrackingSession(delegate);
+    }
+
+    @Test
+    public void shouldOnlyTrackCleanedKeyspaces() {
+        session.executeAsync("INSERT INTO mytable (id, value) VALUES (1, 'a')");
+        assertThat(session.getDirtyTables("mykeyspace"), is(nullValue()));
+
+        session.markClean("mykeyspace");
+        assertThat(session.getDirtyTables("mykeyspace"), is(empty()));
+    }
+
+    @Test
+    public void shouldRecordWrittenTables() {
+        session.markClean("mykeyspace");
+        session.markClean("otherkeyspace");
+
+        session.executeAsync("INSERT INTO mytable (id, value) VALUES (1, 'a')");
+        session.executeAsync("UPDATE \"MyTable\" SET value = 'b' WHERE id = 1");
+        session.executeAsync("DELETE FROM otherkeyspace.othertable WHERE id = 1");
+        session.executeAsync(new BatchStatement().add(new SimpleStatement("TRUNCATE batchedtable")));
+
+        assertThat(session.getDirtyTables("mykeyspace"), containsInAnyOrder("mytable", "MyTable", "batchedtable"));
+        assertThat(session.getDirtyTables("otherkeyspace"), containsInAnyOrder("othertable"));
+    }
+
+    @Test
+    public void shouldShareTheTrackingWithTheSessionsOfOtherClusters() {
+        WriteTrackingSession other = session.sharingTracking(session.getDelegate());
+        session.markClean("mykeyspace");
+
+        other.executeAsync("INSERT INTO mytable (id, value) VALUES (1, 'a')");
+
+        assertThat(session.getDirtyTables("mykeyspace"), containsInAnyOrder("mytable"));
+        assertThat(other.getDirtyTables("mykeyspace"), containsInAnyOrder("mytable"));
+    }
+
+    @Test
+    public void shouldIgnoreReadsAndSchemaChanges() {
+        session.markClean("mykeyspace");
+
+        session.executeAsync("SELECT * FROM mytable WHERE id = 1");
+        session.executeAsync("CREATE TABLE newtable (id int PRIMARY KEY)");
+        session.executeAsync("USE mykeyspace");
+
+        assertThat(session.getDirtyTables("mykeyspace"), is(empty()));
+    }
+
+    @Test
+    public void shouldStopTrackingOnUnattributedWrites() {
+        session.markClean("mykeyspace");
+
+        session.executeAsync("BEGIN BATCH INSERT INTO mytable (id) VALUES (1); APPLY BATCH");
+
+        assertThat(session.getDirtyTables("mykeyspace"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldKeepExcludedTablesDirty() {
+        session.markClean("mykeyspace", "excludedtable");
+        assertThat(session.getDirtyTables("mykeyspace"), containsInAnyOrder("excludedtable"));
+
+        session.untrack("mykeyspace");
+        assertThat(session.getDirtyTables("mykeyspace"), is(nullValue()));
+    }
+}